@@ -3,12 +3,19 @@ package com.ssquadteam.fallout;
 import com.ssquadteam.fallout.commands.RadCommandExecutor;
 import com.ssquadteam.fallout.config.ConfigManager;
 import com.ssquadteam.fallout.integration.MMOItemsIntegration;
+import com.ssquadteam.fallout.listeners.BlockListener;
+import com.ssquadteam.fallout.listeners.EquipmentListener;
 import com.ssquadteam.fallout.listeners.PlayerListener;
 import com.ssquadteam.fallout.listeners.ItemListener;
+import com.ssquadteam.fallout.listeners.WorldListener;
 import com.ssquadteam.fallout.managers.RadiationManager;
 import com.ssquadteam.fallout.managers.RadiationSourceManager;
+import com.ssquadteam.fallout.managers.RadioactiveBlockManager;
+import com.ssquadteam.fallout.managers.ShieldingManager;
+import com.ssquadteam.fallout.scheduler.TaskScheduler;
 import com.ssquadteam.fallout.storage.StorageManager;
 import com.ssquadteam.fallout.tasks.RadiationTask;
+import com.ssquadteam.fallout.tasks.SourceVisualizer;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -19,10 +26,15 @@ public class Fallout extends JavaPlugin {
 
     private static Fallout instance;
     private ConfigManager configManager;
+    private TaskScheduler taskScheduler;
     private StorageManager storageManager;
     private RadiationManager radiationManager;
     private RadiationSourceManager sourceManager;
+    private RadioactiveBlockManager radioactiveBlockManager;
+    private ShieldingManager shieldingManager;
     private MMOItemsIntegration mmoItemsIntegration;
+    private RadiationTask radiationTask;
+    private SourceVisualizer sourceVisualizer;
     private boolean mmoItemsEnabled = false;
 
     @Override
@@ -34,6 +46,9 @@ public class Fallout extends JavaPlugin {
         configManager = new ConfigManager(this);
         configManager.loadConfig();
         
+        // Pick the scheduler for Paper or Folia
+        taskScheduler = TaskScheduler.create(this);
+        
         // Setup storage
         storageManager = new StorageManager(this);
         
@@ -47,22 +62,56 @@ public class Fallout extends JavaPlugin {
         // Load saved radiation sources
         sourceManager.loadSources();
         
+        // Index the radioactive blocks of chunks that are already loaded
+        radioactiveBlockManager = new RadioactiveBlockManager(this);
+        radioactiveBlockManager.rescan();
+        
+        // Cache line-of-sight shielding between sources and players
+        shieldingManager = new ShieldingManager(this);
+        shieldingManager.start();
+        
         // Register commands
         getCommand("rad").setExecutor(new RadCommandExecutor(this));
         
         // Register event listeners
         getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
         getServer().getPluginManager().registerEvents(new ItemListener(this), this);
+        getServer().getPluginManager().registerEvents(new EquipmentListener(this), this);
+        getServer().getPluginManager().registerEvents(new WorldListener(this), this);
+        getServer().getPluginManager().registerEvents(new BlockListener(this), this);
         
         // Start radiation task
-        int checkInterval = getConfigManager().getConfig().getInt("general.check-interval", 20);
-        new RadiationTask(this).runTaskTimer(this, 20L, checkInterval);
+        int checkInterval = getConfigManager().getSettings().getCheckInterval();
+        radiationTask = new RadiationTask(this);
+        radiationTask.start(checkInterval);
+        
+        // Draw the sources near players
+        sourceVisualizer = new SourceVisualizer(this);
+        sourceVisualizer.start();
+        
+        // Periodically save changed player data
+        long autosaveTicks = getConfigManager().getSettings().getAutosaveInterval() * 20L;
+        if (autosaveTicks > 0) {
+            taskScheduler.runGlobalTimer(radiationManager::saveDirtyPlayerDataAsync, autosaveTicks, autosaveTicks);
+        }
+        
+        // Unload the data of players who left a while ago
+        taskScheduler.runGlobalTimer(radiationManager::unloadOfflinePlayers, 20L, 20L);
         
         getLogger().info("Fallout plugin has been enabled!");
     }
 
     @Override
     public void onDisable() {
+        // Stop the radiation workers
+        if (radiationTask != null) {
+            radiationTask.shutdown();
+        }
+        
+        if (taskScheduler != null) {
+            taskScheduler.cancelAll();
+        }
+        
         // Save all radiation sources
         if (sourceManager != null) {
             sourceManager.saveSources();
@@ -73,6 +122,11 @@ public class Fallout extends JavaPlugin {
             radiationManager.saveAllPlayerData();
         }
         
+        // Finish pending writes and release the storage
+        if (storageManager != null) {
+            storageManager.close();
+        }
+        
         getLogger().info("Fallout plugin has been disabled!");
     }
     
@@ -109,6 +163,14 @@ public class Fallout extends JavaPlugin {
         return configManager;
     }
     
+    /**
+     * Gets the task scheduler
+     * @return The TaskScheduler for the running server
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+    
     /**
      * Gets the storage manager
      * @return The StorageManager instance
@@ -133,12 +195,44 @@ public class Fallout extends JavaPlugin {
         return sourceManager;
     }
     
+    /**
+     * Gets the radioactive block manager
+     * @return The RadioactiveBlockManager instance
+     */
+    public RadioactiveBlockManager getRadioactiveBlockManager() {
+        return radioactiveBlockManager;
+    }
+    
+    /**
+     * Gets the shielding manager
+     * @return The ShieldingManager instance
+     */
+    public ShieldingManager getShieldingManager() {
+        return shieldingManager;
+    }
+    
+    /**
+     * Gets the radiation task
+     * @return The RadiationTask instance
+     */
+    public RadiationTask getRadiationTask() {
+        return radiationTask;
+    }
+    
+    /**
+     * Gets the source visualizer
+     * @return The SourceVisualizer instance
+     */
+    public SourceVisualizer getSourceVisualizer() {
+        return sourceVisualizer;
+    }
+    
     /**
      * Checks if MMOItems integration is enabled
      * @return true if MMOItems is available and integration is enabled
      */
     public boolean isMMOItemsEnabled() {
-        return mmoItemsEnabled && configManager.getConfig().getBoolean("mmoitems.enabled", true);
+        return mmoItemsEnabled && configManager.getSettings().isMMOItemsEnabled();
     }
     
     /**
@@ -154,7 +248,7 @@ public class Fallout extends JavaPlugin {
      * @param message The message to log
      */
     public void debug(String message) {
-        if (configManager.getConfig().getBoolean("general.debug", false)) {
+        if (configManager.getSettings().isDebug()) {
             getLogger().log(Level.INFO, "[DEBUG] " + message);
         }
     }
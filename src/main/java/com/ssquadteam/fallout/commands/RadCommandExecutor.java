@@ -1,7 +1,9 @@
 package com.ssquadteam.fallout.commands;
 
 import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.models.FalloffCurve;
 import com.ssquadteam.fallout.models.RadiationSource;
+import com.ssquadteam.fallout.models.ZoneShape;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.command.Command;
@@ -9,7 +11,10 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Handles the /rad command
@@ -68,8 +73,21 @@ public class RadCommandExecutor implements CommandExecutor {
             return true;
         }
 
+        if (args.length > 1) {
+            switch (args[1].toLowerCase()) {
+                case "cuboid":
+                    return handleNewCuboidCommand(player, args);
+                case "cylinder":
+                    return handleNewCylinderCommand(player, args);
+                case "polygon":
+                    return handleNewPolygonCommand(player, args);
+                default:
+                    break;
+            }
+        }
+
         if (args.length < 4) {
-            player.sendMessage(ChatColor.RED + "Usage: /rad new <name> <radius> <strength> [power]");
+            player.sendMessage(ChatColor.RED + "Usage: /rad new <name> <radius> <strength> [power] [falloff]");
             return true;
         }
 
@@ -87,22 +105,191 @@ public class RadCommandExecutor implements CommandExecutor {
             return true;
         }
 
-        // Check if a source with this name already exists
-        if (plugin.getSourceManager().getSourceByName(name) != null) {
-            player.sendMessage(ChatColor.RED + "A radiation source with the name '" + name + "' already exists.");
+        FalloffCurve falloff = parseFalloff(player, args, 5);
+        if (falloff == null || !checkNameFree(player, name)) {
             return true;
         }
 
         // Create the radiation source
         Location location = player.getLocation();
-        RadiationSource source = plugin.getSourceManager().createSource(name, location, radius, strength, power);
+        RadiationSource source = plugin.getSourceManager().createSource(name, location, radius, strength, power, falloff);
 
         player.sendMessage(ChatColor.GREEN + "Created radiation source '" + name + "' at your location.");
-        player.sendMessage(ChatColor.GRAY + "Radius: " + radius + ", Strength: " + strength + ", Power: " + power);
+        player.sendMessage(ChatColor.GRAY + "Radius: " + radius + ", Strength: " + strength + ", Power: " + power
+                + ", Falloff: " + falloff);
 
         return true;
     }
 
+    /**
+     * Handle the /rad new cuboid command
+     * 
+     * @param player The player
+     * @param args The command arguments
+     * @return true if the command was handled
+     */
+    private boolean handleNewCuboidCommand(Player player, String[] args) {
+        if (args.length < 11) {
+            player.sendMessage(ChatColor.RED + "Usage: /rad new cuboid <name> <x1> <y1> <z1> <x2> <y2> <z2> <falloff-distance> <strength> [power] [falloff]");
+            return true;
+        }
+
+        String name = args[2];
+        ZoneShape shape;
+        int distance;
+        int strength;
+        int power;
+
+        try {
+            shape = ZoneShape.cuboid(
+                    Double.parseDouble(args[3]), Double.parseDouble(args[4]), Double.parseDouble(args[5]),
+                    Double.parseDouble(args[6]), Double.parseDouble(args[7]), Double.parseDouble(args[8]));
+            distance = Integer.parseInt(args[9]);
+            strength = Integer.parseInt(args[10]);
+            power = args.length > 11 ? Integer.parseInt(args[11]) : 5;
+        } catch (NumberFormatException e) {
+            player.sendMessage(ChatColor.RED + "Invalid number format. Please use numbers for the corners and integers for distance, strength, and power.");
+            return true;
+        }
+
+        return createZone(player, name, shape, distance, strength, power, parseFalloff(player, args, 12));
+    }
+
+    /**
+     * Handle the /rad new cylinder command. The cylinder stands on the
+     * block the player is standing on.
+     * 
+     * @param player The player
+     * @param args The command arguments
+     * @return true if the command was handled
+     */
+    private boolean handleNewCylinderCommand(Player player, String[] args) {
+        if (args.length < 7) {
+            player.sendMessage(ChatColor.RED + "Usage: /rad new cylinder <name> <radius> <height> <falloff-distance> <strength> [power] [falloff]");
+            return true;
+        }
+
+        String name = args[2];
+        Location location = player.getLocation();
+        ZoneShape shape;
+        int distance;
+        int strength;
+        int power;
+
+        try {
+            double radius = Double.parseDouble(args[3]);
+            double height = Double.parseDouble(args[4]);
+            distance = Integer.parseInt(args[5]);
+            strength = Integer.parseInt(args[6]);
+            power = args.length > 7 ? Integer.parseInt(args[7]) : 5;
+            if (radius <= 0 || height <= 0) {
+                player.sendMessage(ChatColor.RED + "The radius and height of a cylinder must be positive.");
+                return true;
+            }
+            shape = ZoneShape.cylinder(location.getX(), location.getZ(), radius, location.getBlockY(), location.getBlockY() + height);
+        } catch (NumberFormatException e) {
+            player.sendMessage(ChatColor.RED + "Invalid number format. Please use numbers for radius and height and integers for distance, strength, and power.");
+            return true;
+        }
+
+        return createZone(player, name, shape, distance, strength, power, parseFalloff(player, args, 8));
+    }
+
+    /**
+     * Handle the /rad new polygon command. The vertices are given as x,z
+     * pairs and the prism stands on the block the player is standing on.
+     * 
+     * @param player The player
+     * @param args The command arguments
+     * @return true if the command was handled
+     */
+    private boolean handleNewPolygonCommand(Player player, String[] args) {
+        String usage = "Usage: /rad new polygon <name> <height> <falloff-distance> <strength> <x,z> <x,z> <x,z>... [power] [falloff]";
+        if (args.length < 9) {
+            player.sendMessage(ChatColor.RED + usage);
+            return true;
+        }
+
+        String name = args[2];
+        Location location = player.getLocation();
+        double height;
+        int distance;
+        int strength;
+        int power = 5;
+        List<double[]> vertices = new ArrayList<>();
+        int index = 6;
+
+        try {
+            height = Double.parseDouble(args[3]);
+            distance = Integer.parseInt(args[4]);
+            strength = Integer.parseInt(args[5]);
+
+            for (; index < args.length && args[index].contains(","); index++) {
+                String[] pair = args[index].split(",", 2);
+                vertices.add(new double[] {Double.parseDouble(pair[0]), Double.parseDouble(pair[1])});
+            }
+            if (index < args.length) {
+                power = Integer.parseInt(args[index++]);
+            }
+        } catch (NumberFormatException e) {
+            player.sendMessage(ChatColor.RED + "Invalid number format. Please give vertices as x,z and use integers for distance, strength, and power.");
+            return true;
+        }
+
+        if (vertices.size() < 3 || height <= 0) {
+            player.sendMessage(ChatColor.RED + usage);
+            return true;
+        }
+
+        double[] xs = new double[vertices.size()];
+        double[] zs = new double[vertices.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = vertices.get(i)[0];
+            zs[i] = vertices.get(i)[1];
+        }
+        ZoneShape shape = ZoneShape.polygon(xs, zs, location.getBlockY(), location.getBlockY() + height);
+
+        return createZone(player, name, shape, distance, strength, power, parseFalloff(player, args, index));
+    }
+
+    private boolean createZone(Player player, String name, ZoneShape shape, int distance, int strength, int power, FalloffCurve falloff) {
+        if (falloff == null || !checkNameFree(player, name)) {
+            return true;
+        }
+
+        plugin.getSourceManager().createZone(name, player.getWorld(), shape, distance, strength, power, falloff);
+
+        player.sendMessage(ChatColor.GREEN + "Created radiation zone '" + name + "'.");
+        player.sendMessage(ChatColor.GRAY + "Shape: " + shape.getType() + ", Falloff distance: " + distance + ", Strength: " + strength
+                + ", Power: " + power + ", Falloff: " + falloff);
+        return true;
+    }
+
+    /**
+     * Parse the optional falloff argument
+     * 
+     * @param player The player to tell about an invalid value
+     * @param args The command arguments
+     * @param index The index of the falloff argument
+     * @return The falloff, LINEAR if it was not given, or null if it is invalid
+     */
+    private FalloffCurve parseFalloff(Player player, String[] args, int index) {
+        FalloffCurve falloff = args.length > index ? FalloffCurve.fromName(args[index]) : FalloffCurve.LINEAR;
+        if (falloff == null) {
+            player.sendMessage(ChatColor.RED + "Invalid falloff. Use one of: " + Arrays.toString(FalloffCurve.values()));
+        }
+        return falloff;
+    }
+
+    private boolean checkNameFree(Player player, String name) {
+        // Check if a source with this name already exists
+        if (plugin.getSourceManager().getSourceByName(name) != null) {
+            player.sendMessage(ChatColor.RED + "A radiation source with the name '" + name + "' already exists.");
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Handle the /rad list command
      * 
@@ -131,8 +318,11 @@ public class RadCommandExecutor implements CommandExecutor {
             sender.sendMessage(ChatColor.GOLD + source.getName() + ChatColor.GRAY + " - " + status);
             sender.sendMessage(ChatColor.GRAY + "  Location: " + loc.getWorld().getName() + " " + 
                     Math.round(loc.getX()) + ", " + Math.round(loc.getY()) + ", " + Math.round(loc.getZ()));
+            if (source.getShape() != null) {
+                sender.sendMessage(ChatColor.GRAY + "  Shape: " + source.getShape().getType());
+            }
             sender.sendMessage(ChatColor.GRAY + "  Radius: " + source.getRadius() + ", Strength: " + 
-                    source.getStrength() + ", Power: " + source.getPower());
+                    source.getStrength() + ", Power: " + source.getPower() + ", Falloff: " + source.getFalloff());
         }
 
         return true;
@@ -224,9 +414,15 @@ public class RadCommandExecutor implements CommandExecutor {
         sender.sendMessage(ChatColor.GRAY + "Status: " + status);
         sender.sendMessage(ChatColor.GRAY + "Location: " + loc.getWorld().getName() + " " + 
                 Math.round(loc.getX()) + ", " + Math.round(loc.getY()) + ", " + Math.round(loc.getZ()));
-        sender.sendMessage(ChatColor.GRAY + "Radius: " + source.getRadius() + " blocks");
+        if (source.getShape() != null) {
+            sender.sendMessage(ChatColor.GRAY + "Shape: " + source.getShape());
+            sender.sendMessage(ChatColor.GRAY + "Falloff distance: " + source.getRadius() + " blocks");
+        } else {
+            sender.sendMessage(ChatColor.GRAY + "Radius: " + source.getRadius() + " blocks");
+        }
         sender.sendMessage(ChatColor.GRAY + "Strength: " + source.getStrength() + "%");
         sender.sendMessage(ChatColor.GRAY + "Power: " + source.getPower());
+        sender.sendMessage(ChatColor.GRAY + "Falloff: " + source.getFalloff());
 
         return true;
     }
@@ -252,6 +448,8 @@ public class RadCommandExecutor implements CommandExecutor {
         
         // Reload sources
         plugin.getSourceManager().loadSources();
+        plugin.getRadioactiveBlockManager().rescan();
+        plugin.getShieldingManager().clear();
         
         sender.sendMessage(ChatColor.GREEN + "Fallout plugin reloaded!");
         return true;
@@ -264,7 +462,10 @@ public class RadCommandExecutor implements CommandExecutor {
      */
     private void sendHelp(CommandSender sender) {
         sender.sendMessage(ChatColor.GREEN + "=== Fallout Plugin Commands ===");
-        sender.sendMessage(ChatColor.GOLD + "/rad new <name> <radius> <strength> [power]" + ChatColor.GRAY + " - Create a new radiation source");
+        sender.sendMessage(ChatColor.GOLD + "/rad new <name> <radius> <strength> [power] [falloff]" + ChatColor.GRAY + " - Create a new radiation source");
+        sender.sendMessage(ChatColor.GOLD + "/rad new cuboid <name> <x1> <y1> <z1> <x2> <y2> <z2> <falloff-distance> <strength> [power] [falloff]" + ChatColor.GRAY + " - Create a box-shaped zone");
+        sender.sendMessage(ChatColor.GOLD + "/rad new cylinder <name> <radius> <height> <falloff-distance> <strength> [power] [falloff]" + ChatColor.GRAY + " - Create a cylinder at your location");
+        sender.sendMessage(ChatColor.GOLD + "/rad new polygon <name> <height> <falloff-distance> <strength> <x,z>... [power] [falloff]" + ChatColor.GRAY + " - Create a polygon prism at your height");
         sender.sendMessage(ChatColor.GOLD + "/rad list" + ChatColor.GRAY + " - List all radiation sources");
         sender.sendMessage(ChatColor.GOLD + "/rad remove <name>" + ChatColor.GRAY + " - Remove a radiation source");
         sender.sendMessage(ChatColor.GOLD + "/rad info [name]" + ChatColor.GRAY + " - Show info about a radiation source or your current location");
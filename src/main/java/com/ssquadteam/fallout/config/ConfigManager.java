@@ -15,6 +15,7 @@ public class ConfigManager {
 
     private final Fallout plugin;
     private FileConfiguration config;
+    private volatile Settings settings;
     private File configFile;
     
     // Data files for radiation sources and player data
@@ -39,6 +40,7 @@ public class ConfigManager {
         }
         
         config = plugin.getConfig();
+        settings = Settings.load(config, plugin.getLogger());
         
         // Load or create the sources data file
         loadSourcesConfig();
@@ -66,20 +68,9 @@ public class ConfigManager {
     }
 
     /**
-     * Load or create the player data file
+     * Load the old single player data file, if it still exists
      */
     private void loadPlayerDataConfig() {
-        if (!playerDataFile.exists()) {
-            try {
-                if (!plugin.getDataFolder().exists()) {
-                    plugin.getDataFolder().mkdirs();
-                }
-                playerDataFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not create playerdata.yml", e);
-            }
-        }
-        
         playerDataConfig = YamlConfiguration.loadConfiguration(playerDataFile);
     }
 
@@ -91,6 +82,17 @@ public class ConfigManager {
         return config;
     }
 
+    /**
+     * Get the compiled settings snapshot.
+     * The snapshot is replaced as a whole on reload, so callers that need
+     * several values consistently should read it once.
+     * 
+     * @return The current Settings
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
     /**
      * Save the main config
      */
@@ -122,7 +124,7 @@ public class ConfigManager {
     }
 
     /**
-     * Get the player data config
+     * Get the old single player data file, only read to migrate it
      * @return The player data FileConfiguration
      */
     public FileConfiguration getPlayerDataConfig() {
@@ -130,14 +132,16 @@ public class ConfigManager {
     }
 
     /**
-     * Save the player data config
+     * Rename the old player data file once its players have been migrated
+     * to per-player files
      */
-    public void savePlayerDataConfig() {
-        try {
-            playerDataConfig.save(playerDataFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not save playerdata.yml", e);
+    public void retireLegacyPlayerData() {
+        File migrated = new File(plugin.getDataFolder(), "playerdata.yml.migrated");
+        if (playerDataFile.exists() && !playerDataFile.renameTo(migrated)) {
+            plugin.getLogger().warning("Could not rename playerdata.yml after migrating it");
         }
+        
+        playerDataConfig = new YamlConfiguration();
     }
 
     /**
@@ -146,6 +150,7 @@ public class ConfigManager {
     public void reloadAll() {
         plugin.reloadConfig();
         config = plugin.getConfig();
+        settings = Settings.load(config, plugin.getLogger());
         
         sourcesConfig = YamlConfiguration.loadConfiguration(sourcesFile);
         playerDataConfig = YamlConfiguration.loadConfiguration(playerDataFile);
@@ -0,0 +1,84 @@
+package com.ssquadteam.fallout.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.logging.Logger;
+
+/**
+ * How a player's radiation level decays outside of radiation zones
+ * (decay). Levels are stored together with the time they were set, and the
+ * decayed value is computed from the elapsed time when it is read, so a
+ * decaying player costs nothing per check and decay continues while they
+ * are offline.
+ */
+public final class DecayCurve {
+
+    private final Type type;
+    private final double pointsPerMilli;
+    private final double halfLifeMillis;
+
+    private DecayCurve(Type type, double pointsPerSecond, double halfLifeSeconds) {
+        this.type = type;
+        this.pointsPerMilli = Math.max(0, pointsPerSecond) / 1000.0;
+        this.halfLifeMillis = Math.max(0.001, halfLifeSeconds) * 1000.0;
+    }
+
+    /**
+     * Compile the decay section of the config
+     *
+     * @param section The decay section, may be null
+     * @param logger Logger for invalid values
+     * @return The compiled curve
+     */
+    public static DecayCurve load(ConfigurationSection section, Logger logger) {
+        if (section == null) {
+            return new DecayCurve(Type.LINEAR, 1.0, 60);
+        }
+
+        Type type = Type.LINEAR;
+        String typeName = section.getString("type", "LINEAR");
+        try {
+            type = Type.valueOf(typeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid decay type in config: " + typeName);
+        }
+
+        return new DecayCurve(type, section.getDouble("rate", 1.0), section.getDouble("half-life", 60));
+    }
+
+    /**
+     * Get the level a stored level has decayed to, rounded to the nearest point
+     *
+     * @param level The stored level
+     * @param elapsedMillis The time since the level was stored, in milliseconds
+     * @return The decayed level
+     */
+    public int apply(int level, long elapsedMillis) {
+        if (level <= 0 || elapsedMillis <= 0) {
+            return level;
+        }
+
+        double remaining = type == Type.LINEAR
+                ? level - pointsPerMilli * elapsedMillis
+                : level * Math.pow(0.5, elapsedMillis / halfLifeMillis);
+        return remaining <= 0 ? 0 : (int) Math.min(level, Math.round(remaining));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Decay curve types
+     */
+    public enum Type {
+        /**
+         * Loses a fixed number of points per second
+         */
+        LINEAR,
+        /**
+         * Halves every half-life
+         */
+        EXPONENTIAL
+    }
+}
@@ -0,0 +1,177 @@
+package com.ssquadteam.fallout.config;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Pre-parsed table of the potion effects applied at each radiation threshold
+ * (damage.effects). Tiers are sorted by threshold so the applicable tiers for
+ * a level are found with a binary search.
+ */
+public final class RadiationEffectTable {
+
+    /**
+     * Tier index for levels below every threshold
+     */
+    public static final int NO_TIER = -1;
+
+    private final int[] thresholds;
+    private final PotionEffect[][] effects;
+    private final int[] refreshTicks;
+
+    private RadiationEffectTable(int[] thresholds, PotionEffect[][] effects) {
+        this.thresholds = thresholds;
+        this.effects = effects;
+        this.refreshTicks = new int[thresholds.length];
+
+        // A tier also applies every lower tier, so it has to be refreshed before the shortest of them runs out
+        int shortest = Integer.MAX_VALUE;
+        for (int tier = 0; tier < thresholds.length; tier++) {
+            for (PotionEffect effect : effects[tier]) {
+                shortest = Math.min(shortest, effect.getDuration());
+            }
+            refreshTicks[tier] = shortest;
+        }
+    }
+
+    /**
+     * Compile the effects section of the config
+     *
+     * @param section The damage.effects section, may be null
+     * @param logger Logger for invalid entries
+     * @return The compiled table
+     */
+    public static RadiationEffectTable load(ConfigurationSection section, Logger logger) {
+        TreeMap<Integer, PotionEffect[]> tiers = new TreeMap<>();
+
+        if (section != null) {
+            for (String thresholdStr : section.getKeys(false)) {
+                try {
+                    int threshold = Integer.parseInt(thresholdStr);
+
+                    List<PotionEffect> tierEffects = new ArrayList<>();
+                    for (String effectStr : section.getStringList(thresholdStr)) {
+                        PotionEffect effect = parseEffect(effectStr, logger);
+                        if (effect != null) {
+                            tierEffects.add(effect);
+                        }
+                    }
+
+                    if (!tierEffects.isEmpty()) {
+                        tiers.put(threshold, tierEffects.toArray(new PotionEffect[0]));
+                    }
+                } catch (NumberFormatException e) {
+                    logger.warning("Invalid radiation effect threshold: " + thresholdStr);
+                }
+            }
+        }
+
+        int[] thresholds = new int[tiers.size()];
+        PotionEffect[][] effects = new PotionEffect[tiers.size()][];
+        int index = 0;
+        for (Map.Entry<Integer, PotionEffect[]> entry : tiers.entrySet()) {
+            thresholds[index] = entry.getKey();
+            effects[index] = entry.getValue();
+            index++;
+        }
+
+        return new RadiationEffectTable(thresholds, effects);
+    }
+
+    /**
+     * Parse a potion effect from a string format
+     *
+     * @param effectStr The effect string (format: TYPE:AMPLIFIER:DURATION)
+     * @param logger Logger for invalid entries
+     * @return The effect, or null if the string is invalid
+     */
+    private static PotionEffect parseEffect(String effectStr, Logger logger) {
+        String[] parts = effectStr.split(":");
+        if (parts.length < 3) {
+            logger.warning("Invalid effect format: " + effectStr);
+            return null;
+        }
+
+        PotionEffectType type = findEffectType(parts[0]);
+        if (type == null) {
+            logger.warning("Invalid potion effect type: " + parts[0]);
+            return null;
+        }
+
+        try {
+            int amplifier = Integer.parseInt(parts[1]);
+            int duration = Integer.parseInt(parts[2]) * 20; // Convert seconds to ticks
+
+            return new PotionEffect(type, duration, amplifier);
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid number in effect: " + effectStr);
+            return null;
+        }
+    }
+
+    /**
+     * Look up a potion effect type by its key, falling back to the legacy
+     * names (e.g. SLOW or INCREASE_DAMAGE) older configs use
+     *
+     * @param name The effect name
+     * @return The effect type, or null if the name is unknown
+     */
+    @SuppressWarnings("deprecation")
+    private static PotionEffectType findEffectType(String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
+
+        // Names with characters a key can not hold have no key, and are only looked up by legacy name
+        NamespacedKey key = NamespacedKey.fromString(name.toLowerCase(Locale.ROOT));
+        PotionEffectType type = key != null ? Registry.EFFECT.get(key) : null;
+        return type != null ? type : PotionEffectType.getByName(name);
+    }
+
+    /**
+     * Find the highest tier that applies to a radiation level
+     *
+     * @param radiationLevel The radiation level
+     * @return The tier index, or {@link #NO_TIER} if the level is below every threshold
+     */
+    public int getTier(int radiationLevel) {
+        int index = Arrays.binarySearch(thresholds, radiationLevel);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Apply the effects of a tier and every tier below it
+     *
+     * @param player The player
+     * @param tier The tier index
+     */
+    public void apply(Player player, int tier) {
+        for (int i = 0; i <= tier; i++) {
+            for (PotionEffect effect : effects[i]) {
+                player.addPotionEffect(effect);
+            }
+        }
+    }
+
+    /**
+     * Get how long the effects applied for a tier last before the first of them runs out
+     *
+     * @param tier The tier index
+     * @return The duration in ticks
+     */
+    public int getRefreshTicks(int tier) {
+        return refreshTicks[tier];
+    }
+}
@@ -0,0 +1,739 @@
+package com.ssquadteam.fallout.config;
+
+import com.ssquadteam.fallout.models.FalloffCurve;
+import org.bukkit.Color;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Immutable, typed snapshot of config.yml.
+ * Compiled once per load so hot paths read fields instead of walking the YAML tree.
+ */
+public final class Settings {
+
+    // Particles renamed in 1.20.5, so configs written for older versions keep working
+    private static final Map<String, String> LEGACY_PARTICLES = Map.of(
+            "REDSTONE", "DUST",
+            "SPELL_MOB", "ENTITY_EFFECT",
+            "VILLAGER_HAPPY", "HAPPY_VILLAGER",
+            "SMOKE_NORMAL", "SMOKE",
+            "SPELL_WITCH", "WITCH",
+            "SLIME", "ITEM_SLIME"
+    );
+
+    // Marker for particles that need data the config can not describe
+    private static final Object NO_PARTICLE_DATA = new Object();
+
+    // General
+    private final int checkInterval;
+    private final boolean debug;
+    private final int maxRadiationLevel;
+    private final int fieldCacheSize;
+    private final int asyncThreads;
+    private final int autosaveInterval;
+    private final int unloadDelay;
+
+    // Boss bar
+    private final boolean bossBarEnabled;
+    private final String bossBarTitle;
+    private final BarColor bossBarColor;
+    private final BarStyle bossBarStyle;
+    private final String[] bossBarTitles;
+    private final boolean bossBarShared;
+    private final int bossBarBucketSize;
+
+    // Particles
+    private final boolean particlesEnabled;
+    private final Particle particleType;
+    private final Object particleData;
+    private final int particleFrequency;
+    private final int particleViewDistance;
+
+    // Sounds
+    private final SoundSettings enterSound;
+    private final SoundSettings damageSound;
+
+    // Damage
+    private final boolean damageEnabled;
+    private final int damageInterval;
+    private final double damageBaseAmount;
+    private final RadiationEffectTable effectTable;
+
+    // Decay
+    private final DecayCurve decayCurve;
+
+    // Sources
+    private final Set<String> enabledWorlds;
+    private final Map<Material, RadioactiveBlock> radioactiveBlocks;
+    private final boolean showSourceParticles;
+    private final Particle sourceParticleType;
+    private final Object sourceParticleData;
+    private final int sourceParticleBudget;
+    private final int sourceViewDistance;
+    private final double zoneHysteresis;
+
+    // Shielding settings
+    private final boolean shieldingEnabled;
+    private final int shieldingRaycastsPerTick;
+    private final int shieldingCacheSize;
+    private final double[] shieldingCoefficients;
+
+    // Healing
+    private final List<HealingItem> healingItems;
+    private final double radXResistance;
+
+    // Equipment
+    private final boolean equipmentEnabled;
+    private final Map<Material, Double> armorResistances;
+
+    // MMOItems
+    private final boolean mmoItemsEnabled;
+
+    private Settings(FileConfiguration config, Logger logger) {
+        this.checkInterval = Math.max(1, config.getInt("general.check-interval", 20));
+        this.debug = config.getBoolean("general.debug", false);
+        this.maxRadiationLevel = config.getInt("general.max-radiation-level", 100);
+        this.fieldCacheSize = config.getInt("general.field-cache-size", 2048);
+        this.asyncThreads = Math.max(1, config.getInt("general.async-threads", 2));
+        this.autosaveInterval = Math.max(0, config.getInt("storage.autosave-interval", 300));
+        this.unloadDelay = Math.max(0, config.getInt("storage.unload-delay", 60));
+
+        this.bossBarEnabled = config.getBoolean("effects.boss-bar.enabled", true);
+        this.bossBarTitle = config.getString("effects.boss-bar.title", "&c☢ Radiation Level: {level}% ☢").replace("&", "§");
+        this.bossBarColor = parseEnum(BarColor.class, config.getString("effects.boss-bar.color", "RED"), BarColor.RED, "boss bar color", logger);
+        this.bossBarStyle = parseEnum(BarStyle.class, config.getString("effects.boss-bar.style", "SOLID"), BarStyle.SOLID, "boss bar style", logger);
+        this.bossBarShared = config.getBoolean("effects.boss-bar.shared", false);
+        this.bossBarBucketSize = Math.max(1, config.getInt("effects.boss-bar.shared-bucket-size", 5));
+
+        // Render the title of every level once instead of on every update
+        this.bossBarTitles = new String[Math.max(100, maxRadiationLevel) + 1];
+        for (int level = 0; level < bossBarTitles.length; level++) {
+            bossBarTitles[level] = bossBarTitle.replace("{level}", String.valueOf(level));
+        }
+
+        this.particlesEnabled = config.getBoolean("effects.particles.enabled", true);
+        Particle particle = parseParticle(config.getString("effects.particles.type", "DUST"), logger);
+        Object data = particle != null ? parseParticleData(particle, config.getString("effects.particles.color", "GREEN"), logger) : null;
+        this.particleType = data != NO_PARTICLE_DATA ? particle : null;
+        this.particleData = data != NO_PARTICLE_DATA ? data : null;
+        this.particleFrequency = config.getInt("effects.particles.frequency", 10);
+        this.particleViewDistance = Math.max(0, config.getInt("effects.particles.view-distance", 32));
+
+        this.enterSound = new SoundSettings(config, "effects.sounds.enter", "BLOCK_BEACON_ACTIVATE", 1.0, 1.0);
+        this.damageSound = new SoundSettings(config, "effects.sounds.damage", "ENTITY_PLAYER_HURT", 0.8, 1.2);
+
+        this.damageEnabled = config.getBoolean("damage.enabled", true);
+        this.damageInterval = Math.max(1, config.getInt("damage.interval", 60));
+        this.damageBaseAmount = config.getDouble("damage.base-amount", 2.0);
+        this.effectTable = RadiationEffectTable.load(config.getConfigurationSection("damage.effects"), logger);
+
+        this.decayCurve = DecayCurve.load(config.getConfigurationSection("decay"), logger);
+
+        this.enabledWorlds = Collections.unmodifiableSet(new HashSet<>(config.getStringList("sources.enabled-worlds")));
+        this.radioactiveBlocks = Collections.unmodifiableMap(loadRadioactiveBlocks(config.getConfigurationSection("sources.radioactive-blocks"), logger));
+
+        Particle sourceParticle = parseParticle(config.getString("sources.visualizer.particle", "DUST"), logger);
+        Object sourceData = sourceParticle != null ? parseParticleData(sourceParticle, config.getString("sources.visualizer.color", "YELLOW"), logger) : null;
+        this.sourceParticleType = sourceData != NO_PARTICLE_DATA ? sourceParticle : null;
+        this.sourceParticleData = sourceData != NO_PARTICLE_DATA ? sourceData : null;
+        this.showSourceParticles = config.getBoolean("sources.show-particles", true) && sourceParticleType != null;
+        this.sourceParticleBudget = Math.max(1, config.getInt("sources.visualizer.particle-budget", 200));
+        this.sourceViewDistance = Math.max(1, config.getInt("sources.visualizer.view-distance", 48));
+        this.zoneHysteresis = Math.max(0, config.getDouble("sources.zone-hysteresis", 2.0));
+
+        this.shieldingEnabled = config.getBoolean("shielding.enabled", false);
+        this.shieldingRaycastsPerTick = Math.max(0, config.getInt("shielding.max-raycasts-per-tick", 64));
+        this.shieldingCacheSize = Math.max(1, config.getInt("shielding.cache-size", 16384));
+        this.shieldingCoefficients = loadShieldingCoefficients(config.getConfigurationSection("shielding.materials"));
+
+        this.healingItems = Collections.unmodifiableList(loadHealingItems(config.getConfigurationSection("healing.items"), logger));
+        this.radXResistance = config.getDouble("healing.items.radx.resistance-amount", 50) / 100.0;
+
+        this.equipmentEnabled = config.getBoolean("equipment.enabled", true);
+        this.armorResistances = loadArmorResistances(config.getConfigurationSection("equipment.vanilla"));
+
+        this.mmoItemsEnabled = config.getBoolean("mmoitems.enabled", true);
+    }
+
+    /**
+     * Compile a configuration into a settings snapshot
+     *
+     * @param config The configuration to read
+     * @param logger Logger for invalid values
+     * @return The compiled settings
+     */
+    public static Settings load(FileConfiguration config, Logger logger) {
+        return new Settings(config, logger);
+    }
+
+    private static List<HealingItem> loadHealingItems(ConfigurationSection section, Logger logger) {
+        List<HealingItem> items = new ArrayList<>();
+        if (section == null) {
+            return items;
+        }
+
+        for (String key : section.getKeys(false)) {
+            String materialName = section.getString(key + ".material");
+            if (materialName == null) continue;
+
+            Material material = Material.getMaterial(materialName);
+            if (material == null) {
+                logger.warning("Invalid healing item material: " + materialName);
+                continue;
+            }
+
+            Integer customModelData = section.contains(key + ".custom-model-data")
+                    ? section.getInt(key + ".custom-model-data")
+                    : null;
+
+            items.add(new HealingItem(
+                    key,
+                    material,
+                    customModelData,
+                    section.getInt(key + ".amount", 15),
+                    section.getInt(key + ".duration", 600)
+            ));
+        }
+
+        return items;
+    }
+
+    private static Map<Material, RadioactiveBlock> loadRadioactiveBlocks(ConfigurationSection section, Logger logger) {
+        Map<Material, RadioactiveBlock> blocks = new EnumMap<>(Material.class);
+        if (section == null || !section.getBoolean("enabled", false)) {
+            return blocks;
+        }
+
+        ConfigurationSection materials = section.getConfigurationSection("materials");
+        if (materials == null) {
+            return blocks;
+        }
+
+        for (String key : materials.getKeys(false)) {
+            Material material = Material.getMaterial(key.toUpperCase());
+            if (material == null || !material.isBlock()) {
+                logger.warning("Invalid radioactive block material: " + key);
+                continue;
+            }
+
+            FalloffCurve falloff = parseEnum(FalloffCurve.class, materials.getString(key + ".falloff", "LINEAR"),
+                    FalloffCurve.LINEAR, "radioactive block falloff", logger);
+            blocks.put(material, new RadioactiveBlock(
+                    Math.min(16, Math.max(1, materials.getInt(key + ".radius", 4))),
+                    Math.min(100, Math.max(1, materials.getInt(key + ".strength", 30))),
+                    Math.min(10, Math.max(1, materials.getInt(key + ".power", 5))),
+                    falloff
+            ));
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Resolve the material name fragments of shielding.materials (e.g.
+     * CONCRETE) to a coefficient per material ordinal, using the first
+     * matching key
+     */
+    private static double[] loadShieldingCoefficients(ConfigurationSection section) {
+        double[] coefficients = new double[Material.values().length];
+        if (section == null) {
+            return coefficients;
+        }
+
+        Map<String, Double> fragments = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            fragments.put(key.toUpperCase(), Math.max(0, section.getDouble(key)));
+        }
+
+        for (Material material : Material.values()) {
+            if (material.isLegacy() || !material.isBlock()) continue;
+
+            String materialName = material.name();
+            for (Map.Entry<String, Double> entry : fragments.entrySet()) {
+                if (materialName.contains(entry.getKey())) {
+                    coefficients[material.ordinal()] = entry.getValue();
+                    break;
+                }
+            }
+        }
+
+        return coefficients;
+    }
+
+    /**
+     * Resolve the material name fragments of equipment.vanilla (e.g. IRON) to
+     * every material whose name contains them, using the first matching key
+     */
+    private static Map<Material, Double> loadArmorResistances(ConfigurationSection section) {
+        Map<Material, Double> resistances = new EnumMap<>(Material.class);
+        if (section == null) {
+            return resistances;
+        }
+
+        Map<String, Double> fragments = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            fragments.put(key, section.getDouble(key) / 100.0);
+        }
+
+        for (Material material : Material.values()) {
+            if (material.isLegacy()) continue;
+
+            String materialName = material.name();
+            for (Map.Entry<String, Double> entry : fragments.entrySet()) {
+                if (materialName.contains(entry.getKey())) {
+                    resistances.put(material, entry.getValue());
+                    break;
+                }
+            }
+        }
+
+        return resistances;
+    }
+
+    private static Particle parseParticle(String name, Logger logger) {
+        String upperName = name.toUpperCase();
+        return parseEnum(Particle.class, LEGACY_PARTICLES.getOrDefault(upperName, upperName), null, "particle type", logger);
+    }
+
+    /**
+     * Build the data a particle is spawned with: dust options or a color for
+     * colorable particles, nothing for the others
+     *
+     * @return The data, null if the particle takes none, or NO_PARTICLE_DATA if it needs data other than a color
+     */
+    private static Object parseParticleData(Particle particle, String colorName, Logger logger) {
+        Class<?> dataType = particle.getDataType();
+        if (dataType == Void.class) {
+            return null;
+        }
+
+        if (dataType == Particle.DustOptions.class) {
+            return new Particle.DustOptions(parseColor(colorName, logger), 1.0f);
+        }
+        if (dataType == Color.class) {
+            return parseColor(colorName, logger);
+        }
+
+        logger.warning("Particle type " + particle + " needs " + dataType.getSimpleName() + " data, which is not supported");
+        return NO_PARTICLE_DATA;
+    }
+
+    /**
+     * Parse a color name like GREEN, or a hex color like #00FF00
+     */
+    private static Color parseColor(String name, Logger logger) {
+        try {
+            if (name.startsWith("#")) {
+                return Color.fromRGB(Integer.parseInt(name.substring(1), 16));
+            }
+            if (Color.class.getField(name.toUpperCase()).get(null) instanceof Color color) {
+                return color;
+            }
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            // Fall through to the warning
+        }
+
+        logger.warning("Invalid particle color in config: " + name);
+        return Color.GREEN;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, E fallback, String description, Logger logger) {
+        if (name == null) {
+            return fallback;
+        }
+
+        try {
+            return Enum.valueOf(type, name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid " + description + " in config: " + name);
+            return fallback;
+        }
+    }
+
+    public int getCheckInterval() {
+        return checkInterval;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public int getMaxRadiationLevel() {
+        return maxRadiationLevel;
+    }
+
+    public int getFieldCacheSize() {
+        return fieldCacheSize;
+    }
+
+    /**
+     * @return How many worker threads evaluate radiation zones off the main thread
+     */
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    /**
+     * @return The interval between saves of changed player data in seconds, or 0 to only save on shutdown
+     */
+    public int getAutosaveInterval() {
+        return autosaveInterval;
+    }
+
+    /**
+     * @return How long in seconds a player's data is kept in memory after they quit
+     */
+    public int getUnloadDelay() {
+        return unloadDelay;
+    }
+
+    public boolean isBossBarEnabled() {
+        return bossBarEnabled;
+    }
+
+    /**
+     * @return The boss bar title with color codes translated and a {level} placeholder
+     */
+    public String getBossBarTitle() {
+        return bossBarTitle;
+    }
+
+    /**
+     * Get the rendered boss bar title of a level
+     *
+     * @param level The radiation level
+     * @return The title with the level filled in
+     */
+    public String getBossBarTitle(int level) {
+        return bossBarTitles[Math.min(bossBarTitles.length - 1, Math.max(0, level))];
+    }
+
+    public BarColor getBossBarColor() {
+        return bossBarColor;
+    }
+
+    public BarStyle getBossBarStyle() {
+        return bossBarStyle;
+    }
+
+    /**
+     * @return true if players share one boss bar per level bucket instead of having their own
+     */
+    public boolean isBossBarShared() {
+        return bossBarShared;
+    }
+
+    /**
+     * @return The width of a level bucket in shared boss bar mode
+     */
+    public int getBossBarBucketSize() {
+        return bossBarBucketSize;
+    }
+
+    public boolean isParticlesEnabled() {
+        return particlesEnabled;
+    }
+
+    /**
+     * @return The particle type, or null if the configured type is invalid
+     */
+    public Particle getParticleType() {
+        return particleType;
+    }
+
+    /**
+     * @return The data to spawn the particle with, e.g. its dust options, or null if it takes none
+     */
+    public Object getParticleData() {
+        return particleData;
+    }
+
+    public int getParticleFrequency() {
+        return particleFrequency;
+    }
+
+    /**
+     * @return How far away (in blocks) other players still see a player's radiation particles
+     */
+    public int getParticleViewDistance() {
+        return particleViewDistance;
+    }
+
+    public SoundSettings getEnterSound() {
+        return enterSound;
+    }
+
+    public SoundSettings getDamageSound() {
+        return damageSound;
+    }
+
+    public boolean isDamageEnabled() {
+        return damageEnabled;
+    }
+
+    public int getDamageInterval() {
+        return damageInterval;
+    }
+
+    public double getDamageBaseAmount() {
+        return damageBaseAmount;
+    }
+
+    public RadiationEffectTable getEffectTable() {
+        return effectTable;
+    }
+
+    public DecayCurve getDecayCurve() {
+        return decayCurve;
+    }
+
+    /**
+     * Check if radiation is enabled in a world
+     *
+     * @param worldName The world name
+     * @return true if no worlds are listed or the world is listed
+     */
+    public boolean isWorldEnabled(String worldName) {
+        return enabledWorlds.isEmpty() || enabledWorlds.contains(worldName);
+    }
+
+    /**
+     * @return The block materials that emit radiation, empty if radioactive blocks are disabled
+     */
+    public Map<Material, RadioactiveBlock> getRadioactiveBlocks() {
+        return radioactiveBlocks;
+    }
+
+    /**
+     * @return true if the outlines of radiation sources are drawn with particles
+     */
+    public boolean isShowSourceParticles() {
+        return showSourceParticles;
+    }
+
+    public Particle getSourceParticleType() {
+        return sourceParticleType;
+    }
+
+    /**
+     * @return The data to spawn source outline particles with, or null if the particle takes none
+     */
+    public Object getSourceParticleData() {
+        return sourceParticleData;
+    }
+
+    /**
+     * @return How many outline particles may be sent per tick, across all sources and players
+     */
+    public int getSourceParticleBudget() {
+        return sourceParticleBudget;
+    }
+
+    /**
+     * @return How close (in blocks) a source's reach must come to a player for its outline to be drawn
+     */
+    public int getSourceViewDistance() {
+        return sourceViewDistance;
+    }
+
+    /**
+     * @return How far (in blocks) outside a zone's reach a player must be to leave it
+     */
+    public double getZoneHysteresis() {
+        return zoneHysteresis;
+    }
+
+    public boolean isShieldingEnabled() {
+        return shieldingEnabled;
+    }
+
+    /**
+     * @return How many shielding raycasts may run per tick before stale results are reused
+     */
+    public int getShieldingRaycastsPerTick() {
+        return shieldingRaycastsPerTick;
+    }
+
+    /**
+     * @return How many shielding results to cache before evicting the least recently used
+     */
+    public int getShieldingCacheSize() {
+        return shieldingCacheSize;
+    }
+
+    /**
+     * Get how much radiation a block absorbs per block of thickness
+     *
+     * @param material The block material
+     * @return The attenuation coefficient, 0 for materials that do not shield
+     */
+    public double getShieldingCoefficient(Material material) {
+        return shieldingCoefficients[material.ordinal()];
+    }
+
+    public List<HealingItem> getHealingItems() {
+        return healingItems;
+    }
+
+    /**
+     * @return The resistance provided by Rad-X (0.0-1.0)
+     */
+    public double getRadXResistance() {
+        return radXResistance;
+    }
+
+    public boolean isEquipmentEnabled() {
+        return equipmentEnabled;
+    }
+
+    /**
+     * Get the radiation resistance of an armor material
+     *
+     * @param material The material
+     * @return The resistance value (0.0-1.0)
+     */
+    public double getArmorResistance(Material material) {
+        Double resistance = armorResistances.get(material);
+        return resistance != null ? resistance : 0.0;
+    }
+
+    public boolean isMMOItemsEnabled() {
+        return mmoItemsEnabled;
+    }
+
+    /**
+     * A configured sound effect
+     */
+    public static final class SoundSettings {
+        private final boolean enabled;
+        private final Sound sound;
+        private final String soundName;
+        private final float volume;
+        private final float pitch;
+
+        private SoundSettings(FileConfiguration config, String path, String defaultSound, double defaultVolume, double defaultPitch) {
+            this.enabled = config.getBoolean(path + ".enabled", true);
+            this.soundName = config.getString(path + ".sound", defaultSound);
+            this.volume = (float) config.getDouble(path + ".volume", defaultVolume);
+            this.pitch = (float) config.getDouble(path + ".pitch", defaultPitch);
+
+            // Names that are not built-in sounds are sent as-is, e.g. for resource pack sounds
+            Sound parsed = null;
+            try {
+                parsed = Sound.valueOf(soundName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Not a vanilla sound
+            }
+            this.sound = parsed;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * Play this sound to a player at their location
+         *
+         * @param player The player
+         */
+        public void play(Player player) {
+            if (sound != null) {
+                player.playSound(player, sound, volume, pitch);
+            } else {
+                player.playSound(player, soundName, volume, pitch);
+            }
+        }
+    }
+
+    /**
+     * The radiation emitted by every block of a radioactive material, like a
+     * small source at the block's center
+     */
+    public static final class RadioactiveBlock {
+        private final int radius;
+        private final int strength;
+        private final int power;
+        private final FalloffCurve falloff;
+
+        private RadioactiveBlock(int radius, int strength, int power, FalloffCurve falloff) {
+            this.radius = radius;
+            this.strength = strength;
+            this.power = power;
+            this.falloff = falloff;
+        }
+
+        public int getRadius() {
+            return radius;
+        }
+
+        public int getStrength() {
+            return strength;
+        }
+
+        public int getPower() {
+            return power;
+        }
+
+        public FalloffCurve getFalloff() {
+            return falloff;
+        }
+    }
+
+    /**
+     * A configured radiation healing item
+     */
+    public static final class HealingItem {
+        private final String key;
+        private final Material material;
+        private final Integer customModelData;
+        private final int amount;
+        private final int duration;
+
+        private HealingItem(String key, Material material, Integer customModelData, int amount, int duration) {
+            this.key = key;
+            this.material = material;
+            this.customModelData = customModelData;
+            this.amount = amount;
+            this.duration = duration;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Material getMaterial() {
+            return material;
+        }
+
+        /**
+         * @return The required custom model data, or null if any item of the material matches
+         */
+        public Integer getCustomModelData() {
+            return customModelData;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        public int getDuration() {
+            return duration;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ssquadteam.fallout.events;
+
+import com.ssquadteam.fallout.models.RadiationSource;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called when a player enters a radiation zone, on the thread that owns the
+ * player. The zone is the strongest source at the player's position.
+ * <p>
+ * Cancelling keeps the player counted as outside the zone: the enter sound
+ * is not played and the event is called again on the next check. The
+ * player still gains radiation from the zone.
+ */
+public class RadiationZoneEnterEvent extends PlayerEvent implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final RadiationSource zone;
+    private final int level;
+    private boolean cancelled;
+
+    public RadiationZoneEnterEvent(Player player, RadiationSource zone, int level) {
+        super(player);
+        this.zone = zone;
+        this.level = level;
+    }
+
+    /**
+     * @return The zone the player entered
+     */
+    public RadiationSource getZone() {
+        return zone;
+    }
+
+    /**
+     * @return The radiation level of the zone at the player's position (0-100)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
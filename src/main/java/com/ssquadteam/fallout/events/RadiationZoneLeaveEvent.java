@@ -0,0 +1,55 @@
+package com.ssquadteam.fallout.events;
+
+import com.ssquadteam.fallout.models.RadiationSource;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called when a player leaves the radiation zone they entered, on the
+ * thread that owns the player. A player leaves once they are further than
+ * the configured hysteresis distance outside the zone's reach, when the
+ * zone is deactivated or removed, or when they quit.
+ * <p>
+ * Cancelling keeps the player inside the zone until the next check, unless
+ * the zone was removed or the player quit.
+ */
+public class RadiationZoneLeaveEvent extends PlayerEvent implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final RadiationSource zone;
+    private boolean cancelled;
+
+    public RadiationZoneLeaveEvent(Player player, RadiationSource zone) {
+        super(player);
+        this.zone = zone;
+    }
+
+    /**
+     * @return The zone the player left
+     */
+    public RadiationSource getZone() {
+        return zone;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
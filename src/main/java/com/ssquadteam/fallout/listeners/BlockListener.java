@@ -0,0 +1,211 @@
+package com.ssquadteam.fallout.listeners;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.managers.RadioactiveBlockManager;
+import com.ssquadteam.fallout.managers.ShieldingManager;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.PistonMoveReaction;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+
+import java.util.List;
+
+/**
+ * Keeps the index of radioactive blocks and the cached shielding up to
+ * date as blocks change. Besides players, fluids, fire, pistons, entities
+ * and natural forming and fading change blocks, and any of them can add or
+ * remove a shield.
+ */
+public class BlockListener implements Listener {
+
+    private final Fallout plugin;
+
+    public BlockListener(Fallout plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Index placed blocks
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        Block block = event.getBlockPlaced();
+        plugin.getRadioactiveBlockManager().onBlockChange(block, block.getType());
+        plugin.getShieldingManager().onBlockChange(block);
+    }
+
+    /**
+     * Remove broken blocks from the index
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        plugin.getRadioactiveBlockManager().onBlockChange(event.getBlock(), Material.AIR);
+        plugin.getShieldingManager().onBlockChange(event.getBlock());
+    }
+
+    /**
+     * Remove blocks destroyed by an exploding block from the index
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        removeAll(event.blockList());
+    }
+
+    /**
+     * Remove blocks destroyed by an exploding entity from the index
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        removeAll(event.blockList());
+    }
+
+    /**
+     * Invalidate the shielding where a bucket is emptied
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        plugin.getShieldingManager().onBlockChange(event.getBlock());
+    }
+
+    /**
+     * Invalidate the shielding where a bucket is filled
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event) {
+        plugin.getShieldingManager().onBlockChange(event.getBlock());
+    }
+
+    /**
+     * Invalidate the shielding where a fluid flows
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onFluidFlow(BlockFromToEvent event) {
+        plugin.getShieldingManager().onBlockChange(event.getToBlock(), event.getBlock().getType());
+    }
+
+    /**
+     * Invalidate the shielding of burnt blocks
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        plugin.getShieldingManager().onBlockChange(event.getBlock(), Material.AIR);
+    }
+
+    /**
+     * Invalidate the shielding of blocks that fade, e.g. melting ice
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+        plugin.getShieldingManager().onBlockChange(event.getBlock(), event.getNewState().getType());
+    }
+
+    /**
+     * Invalidate the shielding of blocks that form, e.g. concrete hardening
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        plugin.getShieldingManager().onBlockChange(event.getBlock(), event.getNewState().getType());
+    }
+
+    /**
+     * Update the index and the shielding of blocks changed by an entity,
+     * e.g. falling sand
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        plugin.getRadioactiveBlockManager().onBlockChange(event.getBlock(), event.getTo());
+        plugin.getShieldingManager().onBlockChange(event.getBlock(), event.getTo());
+    }
+
+    /**
+     * Move the blocks pushed by a piston in the index and the shielding
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        moveAll(event.getBlocks(), event.getDirection());
+    }
+
+    /**
+     * Move the blocks pulled by a sticky piston in the index and the shielding
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        moveAll(event.getBlocks(), event.getDirection());
+    }
+
+    /**
+     * Handle blocks that are about to move one block in a direction. All
+     * old positions are cleared before the new ones are set, as a block
+     * usually moves into the position another one leaves. Blocks the piston
+     * breaks are only cleared.
+     */
+    private void moveAll(List<Block> blocks, BlockFace direction) {
+        RadioactiveBlockManager radioactiveBlocks = plugin.getRadioactiveBlockManager();
+        ShieldingManager shielding = plugin.getShieldingManager();
+        Material[] types = new Material[blocks.size()];
+
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            types[i] = block.getPistonMoveReaction() == PistonMoveReaction.BREAK ? null : block.getType();
+            radioactiveBlocks.onBlockChange(block, Material.AIR);
+            shielding.onBlockChange(block, Material.AIR);
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            if (types[i] != null) {
+                Block target = blocks.get(i).getRelative(direction);
+                radioactiveBlocks.onBlockChange(target, types[i]);
+                shielding.onBlockChange(target, types[i]);
+            }
+        }
+    }
+
+    private void removeAll(List<Block> blocks) {
+        for (Block block : blocks) {
+            plugin.getRadioactiveBlockManager().onBlockChange(block, Material.AIR);
+            plugin.getShieldingManager().onBlockChange(block);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ssquadteam.fallout.listeners;
+
+import com.destroystokyo.paper.event.player.PlayerArmorChangeEvent;
+import com.ssquadteam.fallout.Fallout;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerItemBreakEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+
+/**
+ * Invalidates cached radiation resistance when a player's equipment changes
+ */
+public class EquipmentListener implements Listener {
+
+    private final Fallout plugin;
+
+    public EquipmentListener(Fallout plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Handle armor being equipped, unequipped or replaced by any means
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onArmorChange(PlayerArmorChangeEvent event) {
+        plugin.getRadiationManager().invalidateResistance(event.getPlayer());
+    }
+
+    /**
+     * Handle an equipped item breaking
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemBreak(PlayerItemBreakEvent event) {
+        plugin.getRadiationManager().invalidateResistance(event.getPlayer());
+    }
+
+    /**
+     * Handle a player switching held items, which can change MMOItems stats
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemHeld(PlayerItemHeldEvent event) {
+        plugin.getRadiationManager().invalidateResistance(event.getPlayer());
+    }
+
+    /**
+     * Handle a player swapping their main and off hand items
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHandItems(PlayerSwapHandItemsEvent event) {
+        plugin.getRadiationManager().invalidateResistance(event.getPlayer());
+    }
+
+    /**
+     * Handle inventory clicks that may move items into or out of equipment slots
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (event.getWhoClicked() instanceof Player) {
+            plugin.getRadiationManager().invalidateResistance((Player) event.getWhoClicked());
+        }
+    }
+
+    /**
+     * Handle inventory drags that may move items into equipment slots
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getWhoClicked() instanceof Player) {
+            plugin.getRadiationManager().invalidateResistance((Player) event.getWhoClicked());
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.ssquadteam.fallout.listeners;
 
 import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.config.Settings;
 import org.bukkit.Material;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -49,30 +49,8 @@ public class ItemListener implements Listener {
         }
         
         // Check vanilla items from config
-        ConfigurationSection healingItems = plugin.getConfigManager().getConfig().getConfigurationSection("healing.items");
-        if (healingItems == null) {
-            return false;
-        }
-        
-        for (String key : healingItems.getKeys(false)) {
-            String materialName = healingItems.getString(key + ".material");
-            if (materialName == null) continue;
-            
-            Material material = Material.getMaterial(materialName);
-            if (material != null && material == item.getType()) {
-                // Check custom model data if specified
-                if (healingItems.contains(key + ".custom-model-data")) {
-                    int customModelData = healingItems.getInt(key + ".custom-model-data");
-                    ItemMeta meta = item.getItemMeta();
-                    
-                    if (meta != null && meta.hasCustomModelData() && meta.getCustomModelData() == customModelData) {
-                        return true;
-                    }
-                } else {
-                    // If no custom model data specified, just match the material
-                    return true;
-                }
-            }
+        if (findHealingItem(item) != null) {
+            return true;
         }
         
         // Check MMOItems if enabled
@@ -94,6 +72,34 @@ public class ItemListener implements Listener {
         return false;
     }
     
+    /**
+     * Find the configured healing item matching an item
+     * 
+     * @param item The item
+     * @return The matching healing item, or null if none matches
+     */
+    private Settings.HealingItem findHealingItem(ItemStack item) {
+        for (Settings.HealingItem healingItem : plugin.getConfigManager().getSettings().getHealingItems()) {
+            if (healingItem.getMaterial() != item.getType()) {
+                continue;
+            }
+            
+            // Check custom model data if specified
+            Integer customModelData = healingItem.getCustomModelData();
+            if (customModelData != null) {
+                ItemMeta meta = item.getItemMeta();
+                
+                if (meta == null || !meta.hasCustomModelData() || meta.getCustomModelData() != customModelData) {
+                    continue;
+                }
+            }
+            
+            return healingItem;
+        }
+        
+        return null;
+    }
+    
     /**
      * Handle consumption of a radiation healing item
      * 
@@ -102,41 +108,23 @@ public class ItemListener implements Listener {
      */
     private void handleRadiationHealingItem(Player player, ItemStack item) {
         // Check vanilla items from config
-        ConfigurationSection healingItems = plugin.getConfigManager().getConfig().getConfigurationSection("healing.items");
-        if (healingItems == null) {
-            return;
-        }
+        Settings.HealingItem healingItem = findHealingItem(item);
         
-        for (String key : healingItems.getKeys(false)) {
-            String materialName = healingItems.getString(key + ".material");
-            if (materialName == null) continue;
+        if (healingItem != null) {
+            String key = healingItem.getKey();
             
-            Material material = Material.getMaterial(materialName);
-            if (material != null && material == item.getType()) {
-                // Check custom model data if specified
-                if (healingItems.contains(key + ".custom-model-data")) {
-                    int customModelData = healingItems.getInt(key + ".custom-model-data");
-                    ItemMeta meta = item.getItemMeta();
-                    
-                    if (meta == null || !meta.hasCustomModelData() || meta.getCustomModelData() != customModelData) {
-                        continue;
-                    }
-                }
-                
-                // Apply effects based on item type
-                if (key.equalsIgnoreCase("rad-away")) {
-                    // Rad-Away removes radiation
-                    int amount = healingItems.getInt(key + ".amount", 15);
-                    plugin.getRadiationManager().removeRadiation(player, amount);
-                    player.sendMessage("§eYou feel the radiation leaving your body. (-" + amount + "%)");
-                } else if (key.equalsIgnoreCase("radx")) {
-                    // Rad-X provides temporary resistance
-                    int duration = healingItems.getInt(key + ".duration", 600);
-                    plugin.getRadiationManager().applyRadXEffect(player, duration);
-                }
-                
-                return;
+            // Apply effects based on item type
+            if (key.equalsIgnoreCase("rad-away")) {
+                // Rad-Away removes radiation
+                int amount = healingItem.getAmount();
+                plugin.getRadiationManager().removeRadiation(player, amount);
+                player.sendMessage("§eYou feel the radiation leaving your body. (-" + amount + "%)");
+            } else if (key.equalsIgnoreCase("radx")) {
+                // Rad-X provides temporary resistance
+                plugin.getRadiationManager().applyRadXEffect(player, healingItem.getDuration());
             }
+            
+            return;
         }
         
         // Handle MMOItems if enabled
@@ -3,7 +3,9 @@ package com.ssquadteam.fallout.listeners;
 import com.ssquadteam.fallout.Fallout;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -18,6 +20,21 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    /**
+     * Load the player's stored data on the async login thread, once no
+     * other plugin can deny the login anymore
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        
+        plugin.getRadiationManager().loadPlayer(event.getUniqueId());
+    }
+
     /**
      * Handle player join event
      * 
@@ -27,11 +44,12 @@ public class PlayerListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
-        // Update boss bar if player has radiation
-        int radiationLevel = plugin.getRadiationManager().getRadiationLevel(player);
-        if (radiationLevel > 0) {
-            plugin.getRadiationManager().setRadiationLevel(player, radiationLevel);
-        }
+        // Show the boss bar and effects of the level the player's radiation decayed to while offline
+        plugin.getRadiationManager().refreshRadiation(plugin.getRadiationManager().getState(player));
+        
+        // Start the player's own check and drawing tasks on region-threaded servers
+        plugin.getRadiationTask().startPlayer(player);
+        plugin.getSourceVisualizer().startPlayer(player);
     }
 
     /**
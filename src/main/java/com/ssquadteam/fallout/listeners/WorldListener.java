@@ -0,0 +1,57 @@
+package com.ssquadteam.fallout.listeners;
+
+import com.ssquadteam.fallout.Fallout;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Handles world and chunk events
+ */
+public class WorldListener implements Listener {
+
+    private final Fallout plugin;
+
+    public WorldListener(Fallout plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Scan chunks that are loaded for radioactive blocks
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        plugin.getRadioactiveBlockManager().onChunkLoad(event.getChunk());
+    }
+
+    /**
+     * Drop the cached radiation field and the radioactive blocks of chunks
+     * that are unloaded
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getRadioactiveBlockManager().onChunkUnload(chunk);
+        plugin.getSourceManager().getFieldCache().invalidateChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Drop the cached radiation field and the radioactive blocks of worlds
+     * that are unloaded
+     * 
+     * @param event The event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getRadioactiveBlockManager().onWorldUnload(event.getWorld());
+        plugin.getSourceManager().getFieldCache().invalidateWorld(event.getWorld());
+    }
+}
@@ -0,0 +1,145 @@
+package com.ssquadteam.fallout.managers;
+
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.models.PlayerRadiationState;
+import org.bukkit.Bukkit;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+
+/**
+ * Shows players their radiation level in a boss bar.
+ * Bars are only touched when the displayed level changes. In shared mode
+ * there is one bar per level bucket and players are moved between them, so
+ * the number of bars does not grow with the player count.
+ */
+public class BossBarManager {
+
+    private Settings sharedSettings;
+    private BossBar[] sharedBars = new BossBar[0];
+
+    /**
+     * Show a player's radiation level, updating the bar only if the displayed level changed
+     *
+     * @param state The player's state
+     * @param settings The current settings
+     * @param radiationLevel The current radiation level
+     */
+    public void update(PlayerRadiationState state, Settings settings, int radiationLevel) {
+        if (!settings.isBossBarEnabled() || radiationLevel <= 0) {
+            hide(state);
+            return;
+        }
+
+        // Rebuild the bar after a reload, as its title, color or style may have changed
+        if (state.getBossBarSettings() != settings) {
+            hide(state);
+        }
+
+        if (settings.isBossBarShared()) {
+            showShared(state, settings, radiationLevel);
+        } else {
+            showOwn(state, settings, radiationLevel);
+        }
+    }
+
+    /**
+     * Remove the boss bar a player is shown
+     *
+     * @param state The player's state
+     */
+    public void hide(PlayerRadiationState state) {
+        BossBar bossBar = state.getBossBar();
+        if (bossBar == null) {
+            return;
+        }
+
+        if (state.isBossBarShared()) {
+            synchronized (this) {
+                bossBar.removePlayer(state.getPlayer());
+            }
+        } else {
+            bossBar.removePlayer(state.getPlayer());
+            bossBar.setVisible(false);
+        }
+
+        state.clearBossBar();
+    }
+
+    /**
+     * Remove all shared bars. Players still shown a bar should be hidden first.
+     */
+    public synchronized void clear() {
+        for (BossBar bossBar : sharedBars) {
+            if (bossBar != null) {
+                bossBar.removeAll();
+            }
+        }
+
+        sharedBars = new BossBar[0];
+        sharedSettings = null;
+    }
+
+    private void showOwn(PlayerRadiationState state, Settings settings, int radiationLevel) {
+        BossBar bossBar = state.getBossBar();
+        if (bossBar != null && state.getBossBarLevel() == radiationLevel) {
+            return;
+        }
+
+        if (bossBar == null) {
+            bossBar = Bukkit.createBossBar(settings.getBossBarTitle(radiationLevel), settings.getBossBarColor(), settings.getBossBarStyle());
+            bossBar.setProgress(getProgress(radiationLevel));
+            bossBar.addPlayer(state.getPlayer());
+        } else {
+            bossBar.setTitle(settings.getBossBarTitle(radiationLevel));
+            bossBar.setProgress(getProgress(radiationLevel));
+        }
+
+        state.setBossBar(bossBar, false, radiationLevel, settings);
+    }
+
+    private void showShared(PlayerRadiationState state, Settings settings, int radiationLevel) {
+        int bucketSize = settings.getBossBarBucketSize();
+        int bucket = (radiationLevel + bucketSize - 1) / bucketSize;
+        int shownLevel = Math.min(settings.getMaxRadiationLevel(), bucket * bucketSize);
+
+        if (state.getBossBar() != null && state.getBossBarLevel() == shownLevel) {
+            return;
+        }
+
+        Player player = state.getPlayer();
+        synchronized (this) {
+            BossBar bossBar = getSharedBar(settings, bucket, shownLevel);
+
+            BossBar previous = state.getBossBar();
+            if (previous != null) {
+                previous.removePlayer(player);
+            }
+            bossBar.addPlayer(player);
+
+            state.setBossBar(bossBar, true, shownLevel, settings);
+        }
+    }
+
+    private BossBar getSharedBar(Settings settings, int bucket, int shownLevel) {
+        if (sharedSettings != settings) {
+            clear();
+            sharedSettings = settings;
+            int bucketSize = settings.getBossBarBucketSize();
+            sharedBars = new BossBar[(settings.getMaxRadiationLevel() + bucketSize - 1) / bucketSize + 1];
+        }
+
+        bucket = Math.min(bucket, sharedBars.length - 1);
+        BossBar bossBar = sharedBars[bucket];
+        if (bossBar == null) {
+            bossBar = Bukkit.createBossBar(settings.getBossBarTitle(shownLevel), settings.getBossBarColor(), settings.getBossBarStyle());
+            bossBar.setProgress(getProgress(shownLevel));
+            sharedBars[bucket] = bossBar;
+        }
+
+        return bossBar;
+    }
+
+    private static double getProgress(int radiationLevel) {
+        return Math.min(1.0, Math.max(0.0, radiationLevel / 100.0));
+    }
+}
@@ -0,0 +1,265 @@
+package com.ssquadteam.fallout.managers;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing map from player UUID to stored radiation level, the time
+ * it was set and Rad-X expiry. Keys and values live in parallel primitive arrays, so entries of
+ * offline players cost no objects and no boxing. Each entry carries a dirty
+ * flag for entries that changed since they were last saved, and the time at
+ * which it may be unloaded.
+ */
+public class OfflinePlayerMap {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private int[] levels;
+    private long[] levelTimes;
+    private long[] radXExpiries;
+    private boolean[] dirty;
+    private long[] unloadAt;
+    private boolean[] used;
+    private int size;
+    private int resizeAt;
+
+    public OfflinePlayerMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Find the index of a player's entry
+     *
+     * @param uuid The player UUID
+     * @return The index, or -1 if the player has no entry
+     */
+    public int indexOf(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int mask = used.length - 1;
+
+        for (int index = slotFor(most, least, mask); used[index]; index = (index + 1) & mask) {
+            if (mostBits[index] == most && leastBits[index] == least) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Store a player's data, replacing any existing entry
+     *
+     * @param uuid The player UUID
+     * @param level The radiation level
+     * @param levelTime The time in milliseconds the level was set and decays from
+     * @param radXExpiry The Rad-X expiry time in milliseconds, or 0 if none
+     * @param changed Whether the data has to be saved
+     * @param unloadTime The time in milliseconds after which the entry may be unloaded, or 0 to keep it
+     */
+    public void put(UUID uuid, int level, long levelTime, long radXExpiry, boolean changed, long unloadTime) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int mask = used.length - 1;
+
+        int index = slotFor(most, least, mask);
+        while (used[index]) {
+            if (mostBits[index] == most && leastBits[index] == least) {
+                levels[index] = level;
+                levelTimes[index] = levelTime;
+                radXExpiries[index] = radXExpiry;
+                dirty[index] = changed;
+                unloadAt[index] = unloadTime;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        used[index] = true;
+        mostBits[index] = most;
+        leastBits[index] = least;
+        levels[index] = level;
+        levelTimes[index] = levelTime;
+        radXExpiries[index] = radXExpiry;
+        dirty[index] = changed;
+        unloadAt[index] = unloadTime;
+
+        if (++size >= resizeAt) {
+            rehash(used.length << 1);
+        }
+    }
+
+    /**
+     * Remove a player's entry
+     *
+     * @param uuid The player UUID
+     * @return true if an entry was removed
+     */
+    public boolean remove(UUID uuid) {
+        int index = indexOf(uuid);
+        if (index < 0) {
+            return false;
+        }
+
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of slots, for iterating with {@link #isUsed(int)}
+     */
+    public int capacity() {
+        return used.length;
+    }
+
+    public boolean isUsed(int index) {
+        return used[index];
+    }
+
+    public UUID getKey(int index) {
+        return new UUID(mostBits[index], leastBits[index]);
+    }
+
+    public int getLevel(int index) {
+        return levels[index];
+    }
+
+    /**
+     * @return The time in milliseconds the level at an index was set and decays from
+     */
+    public long getLevelTime(int index) {
+        return levelTimes[index];
+    }
+
+    public long getRadXExpiry(int index) {
+        return radXExpiries[index];
+    }
+
+    /**
+     * @return true if the entry at an index changed since it was last saved
+     */
+    public boolean isDirty(int index) {
+        return dirty[index];
+    }
+
+    public void setDirty(int index, boolean changed) {
+        dirty[index] = changed;
+    }
+
+    /**
+     * @return The time in milliseconds after which the entry at an index may be unloaded, or 0 to keep it
+     */
+    public long getUnloadAt(int index) {
+        return unloadAt[index];
+    }
+
+    public void setUnloadAt(int index, long unloadTime) {
+        unloadAt[index] = unloadTime;
+    }
+
+    /**
+     * Remove the entry at an index, shifting later entries of the same probe
+     * sequence back so lookups never need tombstones
+     */
+    private void removeAt(int index) {
+        int mask = used.length - 1;
+        int hole = index;
+        int next = index;
+
+        while (true) {
+            next = (next + 1) & mask;
+            if (!used[next]) {
+                break;
+            }
+
+            int ideal = slotFor(mostBits[next], leastBits[next], mask);
+            boolean reachable = hole <= next
+                    ? hole < ideal && ideal <= next
+                    : hole < ideal || ideal <= next;
+            if (reachable) {
+                continue;
+            }
+
+            mostBits[hole] = mostBits[next];
+            leastBits[hole] = leastBits[next];
+            levels[hole] = levels[next];
+            levelTimes[hole] = levelTimes[next];
+            radXExpiries[hole] = radXExpiries[next];
+            dirty[hole] = dirty[next];
+            unloadAt[hole] = unloadAt[next];
+            hole = next;
+        }
+
+        used[hole] = false;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        int[] oldLevels = levels;
+        long[] oldLevelTimes = levelTimes;
+        long[] oldExpiries = radXExpiries;
+        boolean[] oldDirty = dirty;
+        long[] oldUnloadAt = unloadAt;
+        boolean[] oldUsed = used;
+
+        allocate(capacity);
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) continue;
+
+            int index = slotFor(oldMost[i], oldLeast[i], mask);
+            while (used[index]) {
+                index = (index + 1) & mask;
+            }
+
+            used[index] = true;
+            mostBits[index] = oldMost[i];
+            leastBits[index] = oldLeast[i];
+            levels[index] = oldLevels[i];
+            levelTimes[index] = oldLevelTimes[i];
+            radXExpiries[index] = oldExpiries[i];
+            dirty[index] = oldDirty[i];
+            unloadAt[index] = oldUnloadAt[i];
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        levels = new int[capacity];
+        levelTimes = new long[capacity];
+        radXExpiries = new long[capacity];
+        dirty = new boolean[capacity];
+        unloadAt = new long[capacity];
+        used = new boolean[capacity];
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int slotFor(long most, long least, int mask) {
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
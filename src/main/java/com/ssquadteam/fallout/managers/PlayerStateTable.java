@@ -0,0 +1,101 @@
+package com.ssquadteam.fallout.managers;
+
+import com.ssquadteam.fallout.models.PlayerRadiationState;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Table of online player states. Each online player gets a dense slot
+ * index, so per-tick loops walk a packed array instead of a hash map.
+ * <p>
+ * Lookups and changes are synchronized, as players join and leave on
+ * different threads on region-threaded servers. Walking the slots is only
+ * consistent on the thread that adds and removes players; other threads
+ * should use {@link #toArray()}.
+ */
+public class PlayerStateTable {
+
+    private PlayerRadiationState[] slots = new PlayerRadiationState[64];
+    private int size;
+    private final Map<UUID, PlayerRadiationState> byId = new HashMap<>();
+
+    /**
+     * Get the state of an online player
+     *
+     * @param uuid The player UUID
+     * @return The state, or null if the player is not in the table
+     */
+    public synchronized PlayerRadiationState get(UUID uuid) {
+        return byId.get(uuid);
+    }
+
+    /**
+     * Get the state in a slot
+     *
+     * @param slot The slot index (0 to size - 1)
+     * @return The state
+     */
+    public synchronized PlayerRadiationState getSlot(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @return The number of online players in the table
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Add a player's state and assign it the next free slot
+     *
+     * @param state The state to add
+     */
+    public synchronized void add(PlayerRadiationState state) {
+        if (byId.putIfAbsent(state.getUniqueId(), state) != null) {
+            return;
+        }
+
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size << 1);
+        }
+
+        state.setSlot(size);
+        slots[size++] = state;
+    }
+
+    /**
+     * Remove a player's state. The last slot is moved into the freed one to
+     * keep the slots dense.
+     *
+     * @param uuid The player UUID
+     * @return The removed state, or null if the player was not in the table
+     */
+    public synchronized PlayerRadiationState remove(UUID uuid) {
+        PlayerRadiationState state = byId.remove(uuid);
+        if (state == null) {
+            return null;
+        }
+
+        int slot = state.getSlot();
+        PlayerRadiationState last = slots[--size];
+        slots[slot] = last;
+        last.setSlot(slot);
+        slots[size] = null;
+        state.setSlot(-1);
+
+        return state;
+    }
+
+    /**
+     * Copy the states of all online players
+     *
+     * @return A new array with one state per online player
+     */
+    public synchronized PlayerRadiationState[] toArray() {
+        return Arrays.copyOf(slots, size);
+    }
+}
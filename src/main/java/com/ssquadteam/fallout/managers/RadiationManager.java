@@ -1,35 +1,171 @@
 package com.ssquadteam.fallout.managers;
 
 import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.config.RadiationEffectTable;
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.events.RadiationZoneLeaveEvent;
+import com.ssquadteam.fallout.models.PlayerRadiationState;
+import com.ssquadteam.fallout.models.PlayerRecord;
+import com.ssquadteam.fallout.storage.PlayerStorage;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
-import org.bukkit.boss.BarColor;
-import org.bukkit.boss.BarStyle;
-import org.bukkit.boss.BossBar;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
+import org.bukkit.inventory.PlayerInventory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 /**
- * Manages player radiation levels and effects
+ * Manages player radiation levels and effects.
+ * <p>
+ * A player's state is only changed on the thread that owns the player. The
+ * online table and the offline data are shared and synchronized, as
+ * players join and leave on different threads on region-threaded servers.
+ * Stored data is loaded when a player logs in and unloaded a while after
+ * they quit, so only online and recently seen players are held in memory.
+ * Records that are still being saved are held until they are written, so a
+ * player who logs in meanwhile is never loaded from stale stored data.
  */
 public class RadiationManager {
 
+    // Players of the old playerdata.yml written per save while migrating
+    private static final int MIGRATION_BATCH_SIZE = 2000;
+
     private final Fallout plugin;
-    private final Map<UUID, Integer> playerRadiationLevels = new HashMap<>();
-    private final Map<UUID, BossBar> playerBossBars = new HashMap<>();
-    private final Map<UUID, Long> radXEffects = new HashMap<>();
+    private final PlayerStateTable onlinePlayers = new PlayerStateTable();
+    private final OfflinePlayerMap offlinePlayers = new OfflinePlayerMap();
+    // Players of the old playerdata.yml that are not migrated yet, guarded by offlinePlayers
+    private final OfflinePlayerMap legacyPlayers = new OfflinePlayerMap();
+    // Records submitted to the storage but not written yet, guarded by offlinePlayers
+    private final Map<UUID, PlayerRecord> pendingSaves = new HashMap<>();
+    private final BossBarManager bossBars = new BossBarManager();
+    private final PlayerStorage storage;
 
     public RadiationManager(Fallout plugin) {
         this.plugin = plugin;
-        loadPlayerData();
+        this.storage = plugin.getStorageManager().getPlayerStorage();
+        boolean migrate = readLegacyPlayerData();
+        
+        // Players that are already online (e.g. after a plugin reload)
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            loadPlayer(player.getUniqueId());
+            getState(player);
+        }
+        
+        if (migrate) {
+            plugin.getTaskScheduler().runAsync(this::migrateLegacyPlayerData);
+        }
+    }
+
+    /**
+     * Load a player's stored data ahead of their join, so it is ready when
+     * their state is first used. Blocks until the data is read, so call it
+     * from an async login thread.
+     * 
+     * @param uuid The player UUID
+     */
+    public void loadPlayer(UUID uuid) {
+        if (onlinePlayers.get(uuid) != null) {
+            return;
+        }
+        
+        long unloadTime = System.currentTimeMillis() + getUnloadDelayMillis();
+        PlayerRecord record;
+        PlayerRecord legacy = null;
+        synchronized (offlinePlayers) {
+            int index = offlinePlayers.indexOf(uuid);
+            if (index >= 0) {
+                // Still held from a recent session, keep it until the join
+                offlinePlayers.setUnloadAt(index, unloadTime);
+                return;
+            }
+            
+            // A save that is still being written is newer than the stored data
+            record = pendingSaves.get(uuid);
+            
+            // Migrate the player's entry of the old playerdata.yml with this login instead of the running migration
+            int legacyIndex = legacyPlayers.indexOf(uuid);
+            if (legacyIndex >= 0) {
+                legacy = new PlayerRecord(uuid, legacyPlayers.getLevel(legacyIndex), legacyPlayers.getLevelTime(legacyIndex), legacyPlayers.getRadXExpiry(legacyIndex));
+                legacyPlayers.remove(uuid);
+            }
+        }
+        
+        if (record == null) {
+            record = storage.loadAsync(uuid).join();
+        }
+        
+        // Stored data is newer than the old file, migrated data has to be saved
+        boolean migrated = record == null && legacy != null;
+        if (migrated) {
+            record = legacy;
+        }
+        long now = System.currentTimeMillis();
+        if (record == null || record.isEmpty(now)) {
+            return;
+        }
+        
+        synchronized (offlinePlayers) {
+            // Keep data another thread stored in the meantime
+            if (onlinePlayers.get(uuid) == null && offlinePlayers.indexOf(uuid) < 0) {
+                // Data stored without a level time decays from now on
+                long levelTime = record.getLevelTime() > 0 ? record.getLevelTime() : now;
+                offlinePlayers.put(uuid, record.getRadiationLevel(), levelTime, record.getRadXExpiry() > now ? record.getRadXExpiry() : 0, migrated, unloadTime);
+            }
+        }
+    }
+
+    /**
+     * Get the radiation state of an online player, moving their stored data
+     * into the online table on first access
+     * 
+     * @param player The player
+     * @return The player's state
+     */
+    public PlayerRadiationState getState(Player player) {
+        PlayerRadiationState state = onlinePlayers.get(player.getUniqueId());
+        if (state != null) {
+            return state;
+        }
+        
+        synchronized (offlinePlayers) {
+            // Another thread may have moved the player in the meantime
+            state = onlinePlayers.get(player.getUniqueId());
+            if (state != null) {
+                return state;
+            }
+            
+            int index = offlinePlayers.indexOf(player.getUniqueId());
+            if (index >= 0) {
+                state = new PlayerRadiationState(player, offlinePlayers.getLevel(index), offlinePlayers.getLevelTime(index), offlinePlayers.getRadXExpiry(index));
+                if (offlinePlayers.isDirty(index)) {
+                    state.markDirty();
+                }
+                offlinePlayers.remove(player.getUniqueId());
+            } else {
+                state = new PlayerRadiationState(player, 0, System.currentTimeMillis(), 0);
+            }
+            
+            onlinePlayers.add(state);
+        }
+        return state;
+    }
+
+    /**
+     * Get the table of online player states, for iterating by slot
+     * 
+     * @return The PlayerStateTable instance
+     */
+    public PlayerStateTable getOnlinePlayers() {
+        return onlinePlayers;
     }
 
     /**
@@ -39,7 +175,17 @@ public class RadiationManager {
      * @return The player's radiation level (0-100)
      */
     public int getRadiationLevel(Player player) {
-        return playerRadiationLevels.getOrDefault(player.getUniqueId(), 0);
+        return getRadiationLevel(getState(player));
+    }
+
+    /**
+     * Get a player's current radiation level, with decay applied
+     * 
+     * @param state The player's state
+     * @return The player's radiation level (0-100)
+     */
+    public int getRadiationLevel(PlayerRadiationState state) {
+        return state.getRadiationLevel(plugin.getConfigManager().getSettings().getDecayCurve(), System.currentTimeMillis());
     }
 
     /**
@@ -49,17 +195,59 @@ public class RadiationManager {
      * @param level The new radiation level (0-100)
      */
     public void setRadiationLevel(Player player, int level) {
-        int maxLevel = plugin.getConfigManager().getConfig().getInt("general.max-radiation-level", 100);
-        int newLevel = Math.min(maxLevel, Math.max(0, level));
+        setRadiationLevel(getState(player), level);
+    }
+
+    /**
+     * Set a player's radiation level
+     * 
+     * @param state The player's state
+     * @param level The new radiation level (0-100)
+     */
+    public void setRadiationLevel(PlayerRadiationState state, int level) {
+        Settings settings = plugin.getConfigManager().getSettings();
+        int newLevel = Math.min(settings.getMaxRadiationLevel(), Math.max(0, level));
         
         // Store the value
-        playerRadiationLevels.put(player.getUniqueId(), newLevel);
+        state.setRadiationLevel(newLevel, System.currentTimeMillis());
         
         // Update the boss bar
-        updateBossBar(player, newLevel);
+        bossBars.update(state, settings, newLevel);
         
         // Apply effects based on radiation level
-        applyRadiationEffects(player, newLevel);
+        applyRadiationEffects(state, settings, newLevel);
+    }
+
+    /**
+     * Start or stop a player's radiation decay. Radiation only decays while
+     * the player is outside of radiation zones.
+     * 
+     * @param state The player's state
+     * @param decaying Whether the player's radiation decays from now on
+     */
+    public void setDecaying(PlayerRadiationState state, boolean decaying) {
+        state.setDecaying(decaying, plugin.getConfigManager().getSettings().getDecayCurve(), System.currentTimeMillis());
+    }
+
+    /**
+     * Show a player's current radiation level in the boss bar and effects.
+     * Nothing is sent unless the decayed level crossed a displayed value, so
+     * this is cheap to call on every check.
+     * 
+     * @param state The player's state
+     */
+    public void refreshRadiation(PlayerRadiationState state) {
+        Settings settings = plugin.getConfigManager().getSettings();
+        long now = System.currentTimeMillis();
+        int level = state.getRadiationLevel(settings.getDecayCurve(), now);
+        
+        // Fully decayed, so the stored data can be dropped
+        if (level == 0 && state.getStoredLevel() > 0) {
+            state.setRadiationLevel(0, now);
+        }
+        
+        bossBars.update(state, settings, level);
+        applyRadiationEffects(state, settings, level);
     }
 
     /**
@@ -69,20 +257,29 @@ public class RadiationManager {
      * @param amount The amount of radiation to add
      */
     public void addRadiation(Player player, int amount) {
-        if (player.hasPermission("fallout.bypass")) {
+        addRadiation(getState(player), amount);
+    }
+
+    /**
+     * Add radiation to a player
+     * 
+     * @param state The player's state
+     * @param amount The amount of radiation to add
+     */
+    public void addRadiation(PlayerRadiationState state, int amount) {
+        if (state.getPlayer().hasPermission("fallout.bypass")) {
             return;
         }
         
         // Apply radiation resistance if player has any
-        double resistanceMultiplier = calculateResistanceMultiplier(player);
+        double resistanceMultiplier = calculateResistanceMultiplier(state);
         int adjustedAmount = (int) (amount * (1.0 - resistanceMultiplier));
         
         if (adjustedAmount <= 0) {
             return;
         }
         
-        int currentLevel = getRadiationLevel(player);
-        setRadiationLevel(player, currentLevel + adjustedAmount);
+        setRadiationLevel(state, getRadiationLevel(state) + adjustedAmount);
     }
 
     /**
@@ -92,26 +289,83 @@ public class RadiationManager {
      * @param amount The amount of radiation to remove
      */
     public void removeRadiation(Player player, int amount) {
-        int currentLevel = getRadiationLevel(player);
-        setRadiationLevel(player, currentLevel - amount);
+        removeRadiation(getState(player), amount);
     }
 
     /**
-     * Calculate a player's radiation resistance multiplier
+     * Remove radiation from a player
+     * 
+     * @param state The player's state
+     * @param amount The amount of radiation to remove
+     */
+    public void removeRadiation(PlayerRadiationState state, int amount) {
+        setRadiationLevel(state, getRadiationLevel(state) - amount);
+    }
+
+    /**
+     * Get a player's radiation resistance multiplier.
+     * The value is cached until the player's equipment changes, their Rad-X
+     * effect is applied or expires, or the config is reloaded.
      * 
      * @param player The player
      * @return The resistance multiplier (0.0-1.0)
      */
     public double calculateResistanceMultiplier(Player player) {
+        return calculateResistanceMultiplier(getState(player));
+    }
+
+    /**
+     * Get a player's radiation resistance multiplier, using the cached value when possible
+     * 
+     * @param state The player's state
+     * @return The resistance multiplier (0.0-1.0)
+     */
+    public double calculateResistanceMultiplier(PlayerRadiationState state) {
+        Settings settings = plugin.getConfigManager().getSettings();
+        long now = System.currentTimeMillis();
+        
+        if (state.hasResistance(settings, now)) {
+            return state.getResistance();
+        }
+        
+        // The Rad-X part of the value is only valid until the effect expires
+        boolean radX = hasRadXEffect(state, now);
+        double resistance = computeResistanceMultiplier(state.getPlayer(), settings, radX);
+        
+        state.setResistance(settings, resistance, radX ? state.getRadXExpiry() : Long.MAX_VALUE);
+        return resistance;
+    }
+    
+    /**
+     * Drop a player's cached resistance so it is recomputed on next use
+     * 
+     * @param player The player
+     */
+    public void invalidateResistance(Player player) {
+        PlayerRadiationState state = onlinePlayers.get(player.getUniqueId());
+        if (state != null) {
+            state.invalidateResistance();
+        }
+    }
+    
+    /**
+     * Calculate a player's radiation resistance multiplier from their current equipment
+     * 
+     * @param player The player
+     * @param settings The current settings
+     * @param radX Whether the player has an active Rad-X effect
+     * @return The resistance multiplier (0.0-1.0)
+     */
+    private double computeResistanceMultiplier(Player player, Settings settings, boolean radX) {
         double resistance = 0.0;
         
         // Check if player has Rad-X effect
-        if (hasRadXEffect(player)) {
-            resistance += getRadXResistance();
+        if (radX) {
+            resistance += settings.getRadXResistance();
         }
         
         // Add armor resistance
-        if (plugin.getConfigManager().getConfig().getBoolean("equipment.enabled", true)) {
+        if (settings.isEquipmentEnabled()) {
             resistance += calculateArmorResistance(player);
         }
         
@@ -125,186 +379,342 @@ public class RadiationManager {
     }
 
     /**
-     * Load player radiation data from storage
+     * Read the players of the old playerdata.yml that still have data to
+     * migrate
+     * 
+     * @return true if the file holds players to migrate
      */
-    private void loadPlayerData() {
+    private boolean readLegacyPlayerData() {
         FileConfiguration config = plugin.getConfigManager().getPlayerDataConfig();
         ConfigurationSection playersSection = config.getConfigurationSection("players");
         
         if (playersSection == null) {
-            plugin.debug("No player radiation data found");
-            return;
+            return false;
         }
         
+        long now = System.currentTimeMillis();
         for (String uuidString : playersSection.getKeys(false)) {
             try {
                 UUID uuid = UUID.fromString(uuidString);
-                int radiationLevel = playersSection.getInt(uuidString + ".radiation-level", 0);
+                int radiationLevel = Math.max(0, playersSection.getInt(uuidString + ".radiation-level", 0));
                 
-                if (radiationLevel > 0) {
-                    playerRadiationLevels.put(uuid, radiationLevel);
-                    plugin.debug("Loaded radiation level " + radiationLevel + " for player " + uuidString);
+                // Load Rad-X effect if it exists and hasn't expired
+                long expiryTime = playersSection.getLong(uuidString + ".rad-x-expiry", 0);
+                if (expiryTime <= now) {
+                    expiryTime = 0;
                 }
                 
-                // Load Rad-X effect if it exists and hasn't expired
-                if (playersSection.contains(uuidString + ".rad-x-expiry")) {
-                    long expiryTime = playersSection.getLong(uuidString + ".rad-x-expiry", 0);
-                    if (expiryTime > System.currentTimeMillis()) {
-                        radXEffects.put(uuid, expiryTime);
-                        plugin.debug("Loaded Rad-X effect for player " + uuidString + " expiring at " + expiryTime);
-                    }
+                if (radiationLevel > 0 || expiryTime > 0) {
+                    legacyPlayers.put(uuid, radiationLevel, now, expiryTime, true, 0);
                 }
             } catch (IllegalArgumentException e) {
                 plugin.getLogger().warning("Invalid UUID in player data: " + uuidString);
             }
         }
-        
-        plugin.getLogger().info("Loaded radiation data for " + playerRadiationLevels.size() + " players");
+        return true;
     }
 
     /**
-     * Save all player radiation data to storage
+     * Move the players of the old playerdata.yml into the storage, in
+     * batches off the main thread. Players that already have stored data
+     * keep it, and players that log in meanwhile are migrated by their
+     * login. The old file is only retired once every batch was written.
      */
-    public void saveAllPlayerData() {
-        FileConfiguration config = plugin.getConfigManager().getPlayerDataConfig();
-        config.set("players", null); // Clear existing data
-        
-        ConfigurationSection playersSection = config.createSection("players");
+    private void migrateLegacyPlayerData() {
+        int migrated = 0;
+        boolean complete = true;
+        int cursor = 0;
         
-        for (Map.Entry<UUID, Integer> entry : playerRadiationLevels.entrySet()) {
-            String uuidString = entry.getKey().toString();
-            int radiationLevel = entry.getValue();
+        while (complete) {
+            if (!plugin.isEnabled()) {
+                complete = false;
+                break;
+            }
+            
+            // Take the next batch of players no login has claimed yet
+            List<UUID> batch = new ArrayList<>();
+            synchronized (offlinePlayers) {
+                int capacity = legacyPlayers.capacity();
+                for (int scanned = 0; scanned < capacity && batch.size() < MIGRATION_BATCH_SIZE; scanned++) {
+                    cursor = (cursor + 1) % capacity;
+                    if (legacyPlayers.isUsed(cursor)) {
+                        batch.add(legacyPlayers.getKey(cursor));
+                    }
+                }
+            }
             
-            if (radiationLevel > 0) {
-                playersSection.set(uuidString + ".radiation-level", radiationLevel);
+            if (batch.isEmpty()) {
+                break;
             }
             
-            // Save Rad-X effect if it exists and hasn't expired
-            if (radXEffects.containsKey(entry.getKey())) {
-                long expiryTime = radXEffects.get(entry.getKey());
-                if (expiryTime > System.currentTimeMillis()) {
-                    playersSection.set(uuidString + ".rad-x-expiry", expiryTime);
+            try {
+                Set<UUID> stored = storage.findStored(batch);
+                if (stored == null) {
+                    complete = false;
+                    break;
+                }
+                
+                List<PlayerRecord> records = new ArrayList<>();
+                CompletableFuture<List<PlayerRecord>> saved;
+                synchronized (offlinePlayers) {
+                    for (UUID uuid : batch) {
+                        int index = legacyPlayers.indexOf(uuid);
+                        if (index < 0) {
+                            continue;
+                        }
+                        
+                        // Stored data is newer than the old file
+                        if (!stored.contains(uuid)) {
+                            records.add(new PlayerRecord(uuid, legacyPlayers.getLevel(index), legacyPlayers.getLevelTime(index), legacyPlayers.getRadXExpiry(index)));
+                        }
+                        legacyPlayers.remove(uuid);
+                    }
+                    
+                    // Pending before the lock is released, so a login in between reads the migrated data
+                    saved = saveAsync(records);
+                }
+                
+                List<PlayerRecord> failed = saved.join();
+                migrated += records.size() - failed.size();
+                if (!failed.isEmpty()) {
+                    // Held in memory and retried by the regular saves, the file is migrated again on the next start
+                    complete = false;
+                    plugin.getTaskScheduler().runGlobal(() -> markDirty(failed));
                 }
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not migrate a batch of playerdata.yml", e);
+                complete = false;
             }
         }
         
-        plugin.getConfigManager().savePlayerDataConfig();
-        plugin.getLogger().info("Saved radiation data for " + playerRadiationLevels.size() + " players");
+        if (!complete) {
+            plugin.getLogger().warning("Could not migrate playerdata.yml, it will be migrated again on the next start");
+            return;
+        }
+        
+        int count = migrated;
+        plugin.getTaskScheduler().runGlobal(() -> {
+            plugin.getConfigManager().retireLegacyPlayerData();
+            plugin.getLogger().info("Migrated radiation data of " + count + " players from playerdata.yml");
+        });
     }
 
     /**
-     * Update the boss bar for a player
-     * 
-     * @param player The player
-     * @param radiationLevel The current radiation level
+     * Save the data of all players that changed since the last save, and
+     * wait until it is written
      */
-    private void updateBossBar(Player player, int radiationLevel) {
-        if (!plugin.getConfigManager().getConfig().getBoolean("effects.boss-bar.enabled", true)) {
+    public void saveAllPlayerData() {
+        List<PlayerRecord> records = collectDirtyRecords();
+        List<PlayerRecord> failed = saveAsync(records).join();
+        markDirty(failed);
+        
+        plugin.getLogger().info("Saved radiation data for " + (records.size() - failed.size()) + " players");
+    }
+    
+    /**
+     * Save the data of all players that changed since the last save. The
+     * changed data is copied on the calling thread and written on an async
+     * thread.
+     */
+    public void saveDirtyPlayerDataAsync() {
+        List<PlayerRecord> records = collectDirtyRecords();
+        if (records.isEmpty()) {
             return;
         }
         
-        BossBar bossBar = playerBossBars.get(player.getUniqueId());
-        
-        // Create boss bar if it doesn't exist
-        if (bossBar == null && radiationLevel > 0) {
-            String title = plugin.getConfigManager().getConfig().getString("effects.boss-bar.title", "&c☢ Radiation Level: {level}% ☢");
-            title = title.replace("{level}", String.valueOf(radiationLevel)).replace("&", "§");
+        saveAsync(records).thenAccept(failed -> {
+            plugin.debug("Autosaved radiation data for " + (records.size() - failed.size()) + " players");
             
-            BarColor color = BarColor.RED;
-            try {
-                color = BarColor.valueOf(plugin.getConfigManager().getConfig().getString("effects.boss-bar.color", "RED"));
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Invalid boss bar color in config: " + e.getMessage());
+            // Retry the failed records on the next save
+            if (!failed.isEmpty() && plugin.isEnabled()) {
+                plugin.getTaskScheduler().runGlobal(() -> markDirty(failed));
             }
-            
-            BarStyle style = BarStyle.SOLID;
-            try {
-                style = BarStyle.valueOf(plugin.getConfigManager().getConfig().getString("effects.boss-bar.style", "SOLID"));
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Invalid boss bar style in config: " + e.getMessage());
+        });
+    }
+    
+    /**
+     * Unload the data of players whose grace period after quitting ran out,
+     * saving it first if it changed. Keeps memory bound to the players that
+     * are online or just left.
+     */
+    public void unloadOfflinePlayers() {
+        List<PlayerRecord> records = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        
+        synchronized (offlinePlayers) {
+            List<UUID> expired = new ArrayList<>();
+            for (int index = 0; index < offlinePlayers.capacity(); index++) {
+                if (!offlinePlayers.isUsed(index)) {
+                    continue;
+                }
+                
+                long unloadAt = offlinePlayers.getUnloadAt(index);
+                if (unloadAt == 0 || unloadAt > now) {
+                    continue;
+                }
+                
+                expired.add(offlinePlayers.getKey(index));
+                if (offlinePlayers.isDirty(index)) {
+                    records.add(new PlayerRecord(offlinePlayers.getKey(index), offlinePlayers.getLevel(index), offlinePlayers.getLevelTime(index), offlinePlayers.getRadXExpiry(index)));
+                }
             }
             
-            bossBar = Bukkit.createBossBar(title, color, style);
-            bossBar.addPlayer(player);
-            playerBossBars.put(player.getUniqueId(), bossBar);
-        }
-        
-        // Update existing boss bar
-        if (bossBar != null) {
-            if (radiationLevel <= 0) {
-                // Remove boss bar if radiation is gone
-                bossBar.removePlayer(player);
-                playerBossBars.remove(player.getUniqueId());
-                bossBar.setVisible(false);
-            } else {
-                // Update boss bar
-                String title = plugin.getConfigManager().getConfig().getString("effects.boss-bar.title", "&c☢ Radiation Level: {level}% ☢");
-                title = title.replace("{level}", String.valueOf(radiationLevel)).replace("&", "§");
-                
-                bossBar.setTitle(title);
-                bossBar.setProgress(radiationLevel / 100.0);
-                bossBar.setVisible(true);
+            for (UUID uuid : expired) {
+                offlinePlayers.remove(uuid);
             }
         }
+        
+        if (records.isEmpty()) {
+            return;
+        }
+        
+        saveAsync(records).thenAccept(failed -> {
+            // Hold the failed records again until the next save
+            if (!failed.isEmpty() && plugin.isEnabled()) {
+                plugin.getTaskScheduler().runGlobal(() -> markDirty(failed));
+            }
+        });
     }
-
+    
     /**
-     * Apply radiation effects to a player based on their radiation level
+     * Save records off the calling thread, holding them as pending until
+     * they are written. Records that could not be written stay pending until
+     * they are marked as changed again.
      * 
-     * @param player The player
-     * @param radiationLevel The current radiation level
+     * @param records The records to save
+     * @return A future with the records that could not be written
      */
-    private void applyRadiationEffects(Player player, int radiationLevel) {
-        if (!plugin.getConfigManager().getConfig().getBoolean("damage.enabled", true)) {
-            return;
+    private CompletableFuture<List<PlayerRecord>> saveAsync(List<PlayerRecord> records) {
+        synchronized (offlinePlayers) {
+            for (PlayerRecord record : records) {
+                pendingSaves.put(record.getUniqueId(), record);
+            }
         }
         
-        // Apply potion effects based on radiation level thresholds
-        ConfigurationSection effectsSection = plugin.getConfigManager().getConfig().getConfigurationSection("damage.effects");
-        if (effectsSection != null) {
-            for (String thresholdStr : effectsSection.getKeys(false)) {
-                try {
-                    int threshold = Integer.parseInt(thresholdStr);
-                    
-                    if (radiationLevel >= threshold) {
-                        for (String effectStr : effectsSection.getStringList(thresholdStr)) {
-                            applyPotionEffect(player, effectStr);
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    plugin.getLogger().warning("Invalid radiation effect threshold: " + thresholdStr);
+        return storage.saveAsync(records).thenApply(failed -> {
+            synchronized (offlinePlayers) {
+                for (PlayerRecord record : records) {
+                    pendingSaves.remove(record.getUniqueId(), record);
+                }
+                // Never replace a newer save of the same player
+                for (PlayerRecord record : failed) {
+                    pendingSaves.putIfAbsent(record.getUniqueId(), record);
                 }
             }
-        }
+            return failed;
+        });
+    }
+    
+    private long getUnloadDelayMillis() {
+        return plugin.getConfigManager().getSettings().getUnloadDelay() * 1000L;
     }
     
     /**
-     * Apply a potion effect from a string format
+     * Copy the data of every changed player and clear their dirty flags.
+     * Offline entries with nothing left to store are dropped, their copy
+     * deletes the stored data.
      * 
-     * @param player The player
-     * @param effectStr The effect string (format: TYPE:AMPLIFIER:DURATION)
+     * @return The changed records
      */
-    private void applyPotionEffect(Player player, String effectStr) {
-        String[] parts = effectStr.split(":");
-        if (parts.length < 3) {
-            plugin.getLogger().warning("Invalid effect format: " + effectStr);
-            return;
+    private List<PlayerRecord> collectDirtyRecords() {
+        List<PlayerRecord> records = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        
+        for (PlayerRadiationState state : onlinePlayers.toArray()) {
+            if (state.isDirty()) {
+                state.clearDirty();
+                // A level that is not decaying yet holds until now
+                long levelTime = state.isDecaying() ? state.getLevelTime() : now;
+                records.add(new PlayerRecord(state.getUniqueId(), state.getStoredLevel(), levelTime, state.getRadXExpiry()));
+            }
         }
         
-        try {
-            PotionEffectType type = PotionEffectType.getByName(parts[0]);
-            if (type == null) {
-                plugin.getLogger().warning("Invalid potion effect type: " + parts[0]);
-                return;
+        synchronized (offlinePlayers) {
+            List<UUID> empty = new ArrayList<>();
+            for (int index = 0; index < offlinePlayers.capacity(); index++) {
+                if (!offlinePlayers.isUsed(index) || !offlinePlayers.isDirty(index)) {
+                    continue;
+                }
+                
+                offlinePlayers.setDirty(index, false);
+                PlayerRecord record = new PlayerRecord(offlinePlayers.getKey(index), offlinePlayers.getLevel(index), offlinePlayers.getLevelTime(index), offlinePlayers.getRadXExpiry(index));
+                records.add(record);
+                
+                if (record.isEmpty(now)) {
+                    empty.add(record.getUniqueId());
+                }
             }
             
-            int amplifier = Integer.parseInt(parts[1]);
-            int duration = Integer.parseInt(parts[2]) * 20; // Convert seconds to ticks
+            for (UUID uuid : empty) {
+                offlinePlayers.remove(uuid);
+            }
+        }
+        
+        return records;
+    }
+    
+    /**
+     * Mark the players of records that could not be saved as changed again
+     * 
+     * @param records The records that could not be saved
+     */
+    private void markDirty(List<PlayerRecord> records) {
+        for (PlayerRecord record : records) {
+            PlayerRadiationState state = onlinePlayers.get(record.getUniqueId());
+            if (state != null) {
+                state.markDirty();
+                synchronized (offlinePlayers) {
+                    pendingSaves.remove(record.getUniqueId(), record);
+                }
+                continue;
+            }
             
-            player.addPotionEffect(new PotionEffect(type, duration, amplifier));
-        } catch (NumberFormatException e) {
-            plugin.getLogger().warning("Invalid number in effect: " + effectStr);
+            synchronized (offlinePlayers) {
+                int index = offlinePlayers.indexOf(record.getUniqueId());
+                if (index >= 0) {
+                    offlinePlayers.setDirty(index, true);
+                } else {
+                    offlinePlayers.put(record.getUniqueId(), record.getRadiationLevel(), record.getLevelTime(), record.getRadXExpiry(), true,
+                            System.currentTimeMillis() + getUnloadDelayMillis());
+                }
+                pendingSaves.remove(record.getUniqueId(), record);
+            }
+        }
+    }
+
+    /**
+     * Apply radiation effects to a player based on their radiation level.
+     * Effects are only re-applied when the player crosses a threshold or the
+     * previously applied effects are about to run out.
+     * 
+     * @param state The player's state
+     * @param settings The current settings
+     * @param radiationLevel The current radiation level
+     */
+    private void applyRadiationEffects(PlayerRadiationState state, Settings settings, int radiationLevel) {
+        if (!settings.isDamageEnabled()) {
+            return;
+        }
+        
+        RadiationEffectTable effectTable = settings.getEffectTable();
+        int tier = effectTable.getTier(radiationLevel);
+        
+        if (tier == RadiationEffectTable.NO_TIER) {
+            state.clearEffectTier();
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        if (state.hasEffectTier(effectTable, tier, now)) {
+            return;
         }
+        
+        effectTable.apply(state.getPlayer(), tier);
+        
+        // Refresh a second before the shortest effect runs out, or halfway through very short ones
+        int refreshTicks = effectTable.getRefreshTicks(tier);
+        int marginTicks = Math.min(20, refreshTicks / 2);
+        state.setEffectTier(effectTable, tier, now + (refreshTicks - marginTicks) * 50L);
     }
     
     /**
@@ -314,14 +724,18 @@ public class RadiationManager {
      * @return true if the player has an active Rad-X effect
      */
     public boolean hasRadXEffect(Player player) {
-        Long expiryTime = radXEffects.get(player.getUniqueId());
-        if (expiryTime == null) {
+        return hasRadXEffect(getState(player), System.currentTimeMillis());
+    }
+    
+    private boolean hasRadXEffect(PlayerRadiationState state, long now) {
+        long expiryTime = state.getRadXExpiry();
+        if (expiryTime == 0) {
             return false;
         }
         
-        if (expiryTime <= System.currentTimeMillis()) {
+        if (expiryTime <= now) {
             // Effect has expired, remove it
-            radXEffects.remove(player.getUniqueId());
+            state.setRadXExpiry(0);
             return false;
         }
         
@@ -335,8 +749,9 @@ public class RadiationManager {
      * @param durationSeconds The duration in seconds
      */
     public void applyRadXEffect(Player player, int durationSeconds) {
-        long expiryTime = System.currentTimeMillis() + (durationSeconds * 1000L);
-        radXEffects.put(player.getUniqueId(), expiryTime);
+        PlayerRadiationState state = getState(player);
+        state.setRadXExpiry(System.currentTimeMillis() + (durationSeconds * 1000L));
+        state.invalidateResistance();
         
         player.sendMessage("§bYou feel more resistant to radiation. (+" + getRadXResistance() * 100 + "% resistance)");
     }
@@ -347,7 +762,7 @@ public class RadiationManager {
      * @return The resistance value (0.0-1.0)
      */
     public double getRadXResistance() {
-        return plugin.getConfigManager().getConfig().getDouble("healing.items.radx.resistance-amount", 50) / 100.0;
+        return plugin.getConfigManager().getSettings().getRadXResistance();
     }
     
     /**
@@ -357,32 +772,23 @@ public class RadiationManager {
      * @return The resistance value (0.0-1.0)
      */
     public double calculateArmorResistance(Player player) {
+        Settings settings = plugin.getConfigManager().getSettings();
         double resistance = 0.0;
-        ConfigurationSection armorSection = plugin.getConfigManager().getConfig().getConfigurationSection("equipment.vanilla");
-        
-        if (armorSection == null) {
-            return 0.0;
-        }
         
         // Check each armor piece
-        ItemStack[] armor = player.getInventory().getArmorContents();
-        for (ItemStack item : armor) {
-            if (item == null || item.getType() == Material.AIR) {
-                continue;
-            }
-            
-            String materialName = item.getType().name();
-            for (String key : armorSection.getKeys(false)) {
-                if (materialName.contains(key)) {
-                    resistance += armorSection.getDouble(key) / 100.0;
-                    break;
-                }
-            }
-        }
+        PlayerInventory inventory = player.getInventory();
+        resistance += getArmorResistance(settings, inventory.getHelmet());
+        resistance += getArmorResistance(settings, inventory.getChestplate());
+        resistance += getArmorResistance(settings, inventory.getLeggings());
+        resistance += getArmorResistance(settings, inventory.getBoots());
         
         return resistance;
     }
     
+    private double getArmorResistance(Settings settings, ItemStack item) {
+        return item != null ? settings.getArmorResistance(item.getType()) : 0.0;
+    }
+    
     /**
      * Calculate MMOItems radiation resistance for a player
      * 
@@ -408,13 +814,31 @@ public class RadiationManager {
      * @param player The player
      */
     public void cleanupPlayer(Player player) {
-        UUID uuid = player.getUniqueId();
+        PlayerRadiationState state = onlinePlayers.remove(player.getUniqueId());
+        if (state == null) {
+            return;
+        }
         
         // Remove boss bar
-        BossBar bossBar = playerBossBars.remove(uuid);
-        if (bossBar != null) {
-            bossBar.removePlayer(player);
-            bossBar.setVisible(false);
+        bossBars.hide(state);
+        
+        // Quitting always ends the zone membership, cancelling has no effect here
+        if (state.getZone() != null) {
+            Bukkit.getPluginManager().callEvent(new RadiationZoneLeaveEvent(player, state.getZone()));
+            state.setZone(null);
+        }
+        
+        // Radiation keeps decaying while the player is offline
+        long now = System.currentTimeMillis();
+        state.setDecaying(true, plugin.getConfigManager().getSettings().getDecayCurve(), now);
+        
+        // Keep the data of the player for a while in case they come back soon
+        long radXExpiry = state.getRadXExpiry() > now ? state.getRadXExpiry() : 0;
+        // Unsaved changes are kept even if nothing is left, so the stored data gets deleted
+        if (state.getStoredLevel() > 0 || radXExpiry > 0 || state.isDirty()) {
+            synchronized (offlinePlayers) {
+                offlinePlayers.put(state.getUniqueId(), state.getStoredLevel(), state.getLevelTime(), radXExpiry, state.isDirty(), now + getUnloadDelayMillis());
+            }
         }
     }
 }
@@ -1,12 +1,21 @@
 package com.ssquadteam.fallout.managers;
 
 import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.models.FalloffCurve;
 import com.ssquadteam.fallout.models.RadiationSource;
+import com.ssquadteam.fallout.models.ZoneShape;
+import com.ssquadteam.fallout.spatial.BlockSourceIndex;
+import com.ssquadteam.fallout.spatial.IndexedSource;
+import com.ssquadteam.fallout.spatial.RadiationFieldCache;
+import com.ssquadteam.fallout.spatial.SourceBlock;
+import com.ssquadteam.fallout.spatial.SourceGrid;
+import com.ssquadteam.fallout.spatial.ZoneTree;
 import org.bukkit.Location;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.World;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -15,10 +24,18 @@ import java.util.stream.Collectors;
 public class RadiationSourceManager {
 
     private final Fallout plugin;
-    private final Map<UUID, RadiationSource> sources = new HashMap<>();
+    private final Map<UUID, RadiationSource> sources = new ConcurrentHashMap<>();
+    private final SourceGrid grid = new SourceGrid();
+    private final ZoneTree zoneTree = new ZoneTree();
+    private final RadiationFieldCache fieldCache;
+    private final AtomicLong version = new AtomicLong();
+    private final BlockSourceIndex blockIndex;
 
     public RadiationSourceManager(Fallout plugin) {
         this.plugin = plugin;
+        this.fieldCache = new RadiationFieldCache(plugin.getConfigManager().getSettings().getFieldCacheSize());
+        this.blockIndex = new BlockSourceIndex(grid, fieldCache, version::incrementAndGet);
+        plugin.debug("Source evaluation uses " + (SourceBlock.isVectorized() ? "the Vector API" : "scalar code"));
     }
 
     /**
@@ -32,12 +49,96 @@ public class RadiationSourceManager {
      * @return The created RadiationSource
      */
     public RadiationSource createSource(String name, Location location, int radius, int strength, int power) {
-        RadiationSource source = new RadiationSource(name, location, radius, strength, power);
-        sources.put(source.getId(), source);
+        return createSource(name, location, radius, strength, power, FalloffCurve.LINEAR);
+    }
+
+    /**
+     * Create a new radiation source
+     * 
+     * @param name The name of the source
+     * @param location The location of the source
+     * @param radius The radius of effect in blocks
+     * @param strength The strength of radiation at center (0-100)
+     * @param power How quickly radiation builds up (1-10)
+     * @param falloff How the radiation falls off towards the edge
+     * @return The created RadiationSource
+     */
+    public RadiationSource createSource(String name, Location location, int radius, int strength, int power, FalloffCurve falloff) {
+        RadiationSource source = new RadiationSource(name, location, radius, strength, power, falloff);
+        register(source);
         plugin.debug("Created radiation source: " + source);
         return source;
     }
 
+    /**
+     * Create a new shaped radiation zone
+     * 
+     * @param name The name of the zone
+     * @param world The world of the zone
+     * @param shape The shape of the zone
+     * @param radius The distance in blocks over which the radiation falls off outside the shape
+     * @param strength The strength of radiation inside the shape (0-100)
+     * @param power How quickly radiation builds up (1-10)
+     * @param falloff How the radiation falls off towards the edge
+     * @return The created RadiationSource
+     */
+    public RadiationSource createZone(String name, World world, ZoneShape shape, int radius, int strength, int power, FalloffCurve falloff) {
+        Location center = new Location(world,
+                (shape.getMinX() + shape.getMaxX()) / 2,
+                shape.getMinY(),
+                (shape.getMinZ() + shape.getMaxZ()) / 2);
+        RadiationSource source = new RadiationSource(name, center, shape, radius, strength, power, falloff);
+        register(source);
+        plugin.debug("Created radiation zone: " + source);
+        return source;
+    }
+
+    /**
+     * Add a source to the registry and the spatial index, and keep the index
+     * up to date when the source is edited later
+     * 
+     * @param source The source to register
+     */
+    private void register(RadiationSource source) {
+        sources.put(source.getId(), source);
+        grid.add(source);
+        zoneTree.add(source);
+        invalidateField(getBounds(source));
+        version.incrementAndGet();
+        source.setChangeListener(this::onSourceChanged);
+    }
+
+    /**
+     * Re-index an edited source and drop the cached field around both its
+     * old and its new extent. The index is changed before the cache is
+     * invalidated, so a level computed concurrently can not be cached from
+     * the old index.
+     * 
+     * @param source The edited source
+     */
+    private void onSourceChanged(RadiationSource source) {
+        SourceGrid.Bounds oldBounds = getBounds(source);
+        grid.update(source);
+        zoneTree.update(source);
+        invalidateField(oldBounds);
+        invalidateField(getBounds(source));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Get the block region a source is indexed for, in the grid or, for
+     * shaped zones, in the zone tree
+     */
+    private SourceGrid.Bounds getBounds(RadiationSource source) {
+        return source.getShape() != null ? zoneTree.getBounds(source) : grid.getBounds(source);
+    }
+
+    private void invalidateField(SourceGrid.Bounds bounds) {
+        if (bounds != null) {
+            fieldCache.invalidate(bounds);
+        }
+    }
+
     /**
      * Get a radiation source by its ID
      * 
@@ -88,11 +189,55 @@ public class RadiationSourceManager {
      * @return List of radiation sources that affect the location
      */
     public List<RadiationSource> getSourcesNearLocation(Location location) {
-        return sources.values().stream()
-                .filter(RadiationSource::isActive)
-                .filter(source -> source.getLocation().getWorld().equals(location.getWorld()))
-                .filter(source -> source.getLocation().distance(location) <= source.getRadius())
-                .collect(Collectors.toList());
+        List<RadiationSource> nearbySources = new ArrayList<>();
+        collectSourcesAt(location, nearbySources);
+        return nearbySources;
+    }
+
+    /**
+     * Collect the radiation sources that affect a location, without
+     * allocating a new list
+     * 
+     * @param location The location to check
+     * @param nearbySources The list to add the sources to
+     */
+    public void collectSourcesAt(Location location, List<RadiationSource> nearbySources) {
+        // Only the sources registered in the location's cell can reach it
+        SourceBlock candidates = grid.getCandidates(location.getWorld(), location.getBlockX(), location.getBlockZ());
+        for (int i = 0; i < candidates.size(); i++) {
+            IndexedSource source = candidates.getSource(i);
+            if (source.getSource() == null) {
+                continue; // A radioactive block
+            }
+            
+            double dx = source.getX() - location.getX();
+            double dy = source.getY() - location.getY();
+            double dz = source.getZ() - location.getZ();
+            if (dx * dx + dy * dy + dz * dz <= source.getRadiusSquared()) {
+                nearbySources.add(source.getSource());
+            }
+        }
+        
+        zoneTree.collect(location.getWorld(), location.getX(), location.getY(), location.getZ(), nearbySources);
+    }
+
+    /**
+     * Collect the sources and zones whose reach comes within a distance of a
+     * location, using the spatial index instead of scanning every source
+     * 
+     * @param location The location
+     * @param distance The distance in blocks
+     * @param result The set to add the sources to
+     */
+    public void collectSourcesNear(Location location, int distance, Set<RadiationSource> result) {
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int z = location.getBlockZ();
+        grid.collectNear(world, x - distance, z - distance, x + distance, z + distance, result);
+        zoneTree.collectNear(world,
+                location.getX() - distance, location.getY() - distance, location.getZ() - distance,
+                location.getX() + distance, location.getY() + distance, location.getZ() + distance,
+                result);
     }
 
     /**
@@ -102,18 +247,106 @@ public class RadiationSourceManager {
      * @return The total radiation level (0-100)
      */
     public int getRadiationLevelAt(Location location) {
-        List<RadiationSource> nearbySources = getSourcesNearLocation(location);
-        
-        if (nearbySources.isEmpty()) {
-            return 0;
+        return getRadiationLevelAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Get the radiation level of a block, computing it at the block center
+     * and caching it on first access. Safe to call from any thread.
+     * 
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @return The total radiation level (0-100)
+     */
+    public int getRadiationLevelAt(World world, int x, int y, int z) {
+        int level = fieldCache.get(world, x, y, z);
+        if (level != RadiationFieldCache.UNKNOWN) {
+            return level;
         }
         
+        // Read the epoch before the index so a concurrent source change rejects the result
+        long epoch = fieldCache.getEpoch();
+        level = computeRadiationLevelAt(world, x + 0.5, y + 0.5, z + 0.5);
+        fieldCache.put(world, x, y, z, level, epoch);
+        return level;
+    }
+
+    /**
+     * Calculate the total radiation level at a position in a single pass over
+     * the sources of its cell and the zones whose boxes contain it
+     * 
+     * @param world The world
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The total radiation level (0-100)
+     */
+    private int computeRadiationLevelAt(World world, double x, double y, double z) {
         // Use the highest radiation level from all nearby sources
         // Could be changed to additive with diminishing returns if preferred
-        return nearbySources.stream()
-                .mapToInt(source -> source.getRadiationLevelAt(location))
-                .max()
-                .orElse(0);
+        int level = grid.getCandidates(world, (int) Math.floor(x), (int) Math.floor(z)).maxLevelAt(x, y, z);
+        return level >= RadiationSource.MAX_LEVEL ? level : Math.max(level, zoneTree.maxLevelAt(world, x, y, z));
+    }
+
+    /**
+     * Calculate the radiation level of a block with the blocks between each
+     * point source and the block absorbing part of its radiation. Shaped
+     * zones are not shielded. Call on the thread that owns the block.
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @param shielding The shielding to apply
+     * @return The total radiation level (0-100)
+     */
+    public int getShieldedRadiationLevelAt(World world, int x, int y, int z, ShieldingManager shielding) {
+        double px = x + 0.5;
+        double py = y + 0.5;
+        double pz = z + 0.5;
+        int level = zoneTree.maxLevelAt(world, px, py, pz);
+
+        SourceBlock candidates = grid.getCandidates(world, x, z);
+        for (int i = 0; i < candidates.size() && level < RadiationSource.MAX_LEVEL; i++) {
+            // Shielding only lowers a level, so sources that can not beat the current one need no raycast
+            int sourceLevel = candidates.levelAt(i, px, py, pz);
+            if (sourceLevel > level) {
+                level = Math.max(level, (int) (sourceLevel * shielding.getTransmission(world, candidates.getSource(i), x, y, z)));
+            }
+        }
+
+        return level;
+    }
+
+    /**
+     * Get the version of the source set. It changes whenever a source is
+     * created, removed, edited or reloaded, so results computed against an
+     * older version may be stale.
+     * 
+     * @return The current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Get the cache of computed radiation levels
+     * 
+     * @return The RadiationFieldCache instance
+     */
+    public RadiationFieldCache getFieldCache() {
+        return fieldCache;
+    }
+
+    /**
+     * Get the index of radioactive blocks, which feeds the same lookup as the sources
+     * 
+     * @return The BlockSourceIndex instance
+     */
+    public BlockSourceIndex getBlockIndex() {
+        return blockIndex;
     }
 
     /**
@@ -125,6 +358,12 @@ public class RadiationSourceManager {
     public boolean removeSource(UUID id) {
         RadiationSource removed = sources.remove(id);
         if (removed != null) {
+            removed.setChangeListener(null);
+            SourceGrid.Bounds bounds = getBounds(removed);
+            grid.remove(removed);
+            zoneTree.remove(removed);
+            invalidateField(bounds);
+            version.incrementAndGet();
             plugin.debug("Removed radiation source: " + removed);
             return true;
         }
@@ -146,36 +385,32 @@ public class RadiationSourceManager {
     }
 
     /**
-     * Load all radiation sources from storage
+     * Load all radiation sources from storage. Clears the radioactive blocks
+     * too, they have to be scanned again afterwards.
      */
     public void loadSources() {
+        for (RadiationSource source : sources.values()) {
+            source.setChangeListener(null);
+        }
         sources.clear();
+        grid.clear();
+        blockIndex.clear();
+        zoneTree.clear();
+        fieldCache.clear();
+        version.incrementAndGet();
         
-        FileConfiguration config = plugin.getConfigManager().getSourcesConfig();
-        ConfigurationSection sourcesSection = config.getConfigurationSection("sources");
-        
-        if (sourcesSection == null) {
-            plugin.debug("No radiation sources found in sources.yml");
-            return;
+        List<RadiationSource> loaded = plugin.getStorageManager().getSourceStorage().loadSources();
+        for (RadiationSource source : loaded) {
+            sources.put(source.getId(), source);
+            grid.add(source);
+            source.setChangeListener(this::onSourceChanged);
+            plugin.debug("Loaded radiation source: " + source);
         }
         
-        for (String key : sourcesSection.getKeys(false)) {
-            try {
-                ConfigurationSection sourceSection = sourcesSection.getConfigurationSection(key);
-                if (sourceSection == null) continue;
-                
-                Map<String, Object> sourceMap = new HashMap<>();
-                for (String field : sourceSection.getKeys(false)) {
-                    sourceMap.put(field, sourceSection.get(field));
-                }
-                
-                RadiationSource source = new RadiationSource(sourceMap);
-                sources.put(source.getId(), source);
-                plugin.debug("Loaded radiation source: " + source);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed to load radiation source at key " + key + ": " + e.getMessage());
-            }
-        }
+        // Build the zone tree of each world once instead of once per zone
+        zoneTree.addAll(loaded);
+        fieldCache.clear();
+        version.incrementAndGet();
         
         plugin.getLogger().info("Loaded " + sources.size() + " radiation sources");
     }
@@ -184,28 +419,7 @@ public class RadiationSourceManager {
      * Save all radiation sources to storage
      */
     public void saveSources() {
-        FileConfiguration config = plugin.getConfigManager().getSourcesConfig();
-        config.set("sources", null); // Clear existing sources
-        
-        ConfigurationSection sourcesSection = config.createSection("sources");
-        
-        int count = 0;
-        for (RadiationSource source : sources.values()) {
-            try {
-                ConfigurationSection sourceSection = sourcesSection.createSection(source.getId().toString());
-                Map<String, Object> serialized = source.serialize();
-                
-                for (Map.Entry<String, Object> entry : serialized.entrySet()) {
-                    sourceSection.set(entry.getKey(), entry.getValue());
-                }
-                
-                count++;
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed to save radiation source " + source.getId() + ": " + e.getMessage());
-            }
-        }
-        
-        plugin.getConfigManager().saveSourcesConfig();
+        int count = plugin.getStorageManager().getSourceStorage().saveSources(sources.values());
         plugin.getLogger().info("Saved " + count + " radiation sources");
     }
-} 
\ No newline at end of file
+}
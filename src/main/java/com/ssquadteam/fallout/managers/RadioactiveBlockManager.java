@@ -0,0 +1,202 @@
+package com.ssquadteam.fallout.managers;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.spatial.BlockSourceIndex;
+import com.ssquadteam.fallout.spatial.IndexedSource;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link BlockSourceIndex} in sync with the radioactive blocks of
+ * the loaded chunks. A chunk is scanned once from a snapshot off the main
+ * thread when it loads, then updated block by block as blocks are placed,
+ * broken, blown up, moved by pistons or changed by entities, and dropped
+ * when it unloads.
+ */
+public class RadioactiveBlockManager {
+
+    private final Fallout plugin;
+    private final BlockSourceIndex index;
+
+    // The latest scan of every tracked chunk, used to discard results of chunks that were unloaded or rescanned since
+    private final Map<UUID, Map<Long, Scan>> scans = new ConcurrentHashMap<>();
+
+    public RadioactiveBlockManager(Fallout plugin) {
+        this.plugin = plugin;
+        this.index = plugin.getSourceManager().getBlockIndex();
+    }
+
+    /**
+     * Scan a chunk that was loaded. Call on the thread that owns the chunk.
+     *
+     * @param chunk The chunk
+     */
+    public void onChunkLoad(Chunk chunk) {
+        Settings settings = plugin.getConfigManager().getSettings();
+        if (settings.getRadioactiveBlocks().isEmpty() || !settings.isWorldEnabled(chunk.getWorld().getName())) {
+            return;
+        }
+
+        World world = chunk.getWorld();
+        Scan scan = new Scan();
+        synchronized (this) {
+            scans.computeIfAbsent(world.getUID(), id -> new ConcurrentHashMap<>()).put(chunkKey(chunk.getX(), chunk.getZ()), scan);
+        }
+
+        // The snapshot has to be taken on the chunk's thread, reading it does not
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+        Map<Material, Settings.RadioactiveBlock> types = settings.getRadioactiveBlocks();
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            List<IndexedSource> blocks = scan(snapshot, minY, maxY, types);
+            synchronized (this) {
+                Map<Long, Scan> chunks = scans.get(world.getUID());
+                if (chunks != null && chunks.get(chunkKey(snapshot.getX(), snapshot.getZ())) == scan) {
+                    index.setChunk(world.getUID(), snapshot.getX(), snapshot.getZ(), blocks);
+                    scan.done = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop the blocks of a chunk that is unloaded
+     *
+     * @param chunk The chunk
+     */
+    public synchronized void onChunkUnload(Chunk chunk) {
+        UUID worldId = chunk.getWorld().getUID();
+        Map<Long, Scan> chunks = scans.get(worldId);
+        if (chunks != null && chunks.remove(chunkKey(chunk.getX(), chunk.getZ())) != null) {
+            index.removeChunk(worldId, chunk.getX(), chunk.getZ());
+        }
+    }
+
+    /**
+     * Drop the blocks of a world that is unloaded
+     *
+     * @param world The world
+     */
+    public synchronized void onWorldUnload(World world) {
+        if (scans.remove(world.getUID()) != null) {
+            index.removeWorld(world.getUID());
+        }
+    }
+
+    /**
+     * Update the index after a block changed. Call on the thread that owns
+     * the block, after the change.
+     *
+     * @param block The block
+     * @param material The block's new material
+     */
+    public void onBlockChange(Block block, Material material) {
+        Map<Material, Settings.RadioactiveBlock> types = plugin.getConfigManager().getSettings().getRadioactiveBlocks();
+        if (types.isEmpty()) {
+            return;
+        }
+
+        Scan scan;
+        synchronized (this) {
+            Map<Long, Scan> chunks = scans.get(block.getWorld().getUID());
+            scan = chunks != null ? chunks.get(chunkKey(block.getX() >> 4, block.getZ() >> 4)) : null;
+            if (scan != null && scan.done) {
+                index.setBlock(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ(), types.get(material));
+                return;
+            }
+        }
+
+        // The pending scan may have missed the change, so take a new snapshot
+        if (scan != null) {
+            onChunkLoad(block.getChunk());
+        }
+    }
+
+    /**
+     * Scan all loaded chunks again, e.g. after the configured materials
+     * changed. The index must have been cleared before.
+     */
+    public void rescan() {
+        Map<UUID, List<Long>> tracked = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<UUID, Map<Long, Scan>> entry : scans.entrySet()) {
+                tracked.put(entry.getKey(), new ArrayList<>(entry.getValue().keySet()));
+            }
+            scans.clear();
+        }
+
+        if (!plugin.getTaskScheduler().isRegionThreaded()) {
+            for (World world : Bukkit.getWorlds()) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    onChunkLoad(chunk);
+                }
+            }
+            return;
+        }
+
+        // Loaded chunks can not be listed on region-threaded servers, so rescan the ones that were tracked
+        for (Map.Entry<UUID, List<Long>> entry : tracked.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) {
+                continue;
+            }
+
+            for (long key : entry.getValue()) {
+                int chunkX = (int) (key >> 32);
+                int chunkZ = (int) key;
+                plugin.getTaskScheduler().runForChunk(world, chunkX, chunkZ, () -> {
+                    if (world.isChunkLoaded(chunkX, chunkZ)) {
+                        onChunkLoad(world.getChunkAt(chunkX, chunkZ));
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Find the radioactive blocks of a chunk snapshot
+     */
+    private static List<IndexedSource> scan(ChunkSnapshot snapshot, int minY, int maxY, Map<Material, Settings.RadioactiveBlock> types) {
+        List<IndexedSource> blocks = new ArrayList<>();
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+
+        for (int y = minY; y < maxY; y++) {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    Settings.RadioactiveBlock type = types.get(snapshot.getBlockType(x, y, z));
+                    if (type != null) {
+                        blocks.add(IndexedSource.ofBlock(baseX + x, y, baseZ + z, type));
+                    }
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A scan of a chunk, identified by its instance
+     */
+    private static final class Scan {
+        private volatile boolean done;
+    }
+}
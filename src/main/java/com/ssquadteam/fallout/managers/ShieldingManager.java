@@ -0,0 +1,350 @@
+package com.ssquadteam.fallout.managers;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.spatial.IndexedSource;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attenuates radiation by the blocks between a source and a position. The
+ * blocks are found by a voxel raycast along the line of sight, and every
+ * block absorbs part of the radiation according to its material's
+ * coefficient and the length of the ray inside it.
+ * <p>
+ * Raycasts are cached per pair of source block and target block. A block
+ * change stamps its chunk, which makes every cached ray through that chunk
+ * stale. Only a limited number of raycasts run per tick; once the budget
+ * is used up, stale results are reused until the next tick. Every result
+ * that is not exact, because it is stale or a ray crossed unreadable
+ * chunks, is counted, so callers can avoid caching levels built from it.
+ * <p>
+ * Blocks are only read in chunks that are loaded and owned by the calling
+ * thread, so call from the thread that owns the target position. Rays that
+ * cross other chunks treat them as air and are refreshed later.
+ */
+public class ShieldingManager {
+
+    private final Fallout plugin;
+    private final AtomicInteger budget = new AtomicInteger();
+    private final AtomicLong approximations = new AtomicLong();
+    private RayCache rays;
+
+    // The generation at which each chunk last changed, per world
+    private final Map<UUID, Map<Long, Long>> chunkStamps = new HashMap<>();
+    private long generation;
+
+    public ShieldingManager(Fallout plugin) {
+        this.plugin = plugin;
+        this.rays = new RayCache(plugin.getConfigManager().getSettings().getShieldingCacheSize());
+    }
+
+    /**
+     * Start refilling the raycast budget every tick
+     */
+    public void start() {
+        plugin.getTaskScheduler().runGlobalTimer(
+                () -> budget.set(plugin.getConfigManager().getSettings().getShieldingRaycastsPerTick()), 1L, 1L);
+    }
+
+    /**
+     * Get the fraction of a source's radiation that reaches a block. Once
+     * this tick's raycasts are used up, the last result for the pair is
+     * returned even if it is stale, and a pair that was never cast is
+     * treated as unshielded until the next tick.
+     *
+     * @param world The world
+     * @param source The source
+     * @param x The target block x coordinate
+     * @param y The target block y coordinate
+     * @param z The target block z coordinate
+     * @return The transmitted fraction, 1 if nothing shields the block
+     */
+    public double getTransmission(World world, IndexedSource source, int x, int y, int z) {
+        RayKey key = new RayKey(world.getUID(),
+                (int) Math.floor(source.getX()), (int) Math.floor(source.getY()), (int) Math.floor(source.getZ()),
+                x, y, z);
+
+        long startedAt;
+        Ray cached;
+        synchronized (this) {
+            cached = rays.get(key);
+            if (cached != null && cached.complete && isFresh(cached, key)) {
+                return cached.transmission;
+            }
+            startedAt = generation;
+        }
+
+        // Out of raycasts for this tick, reuse the stale result or leave the radiation unshielded
+        if (budget.getAndDecrement() <= 0) {
+            approximations.incrementAndGet();
+            return cached != null ? cached.transmission : 1.0;
+        }
+
+        Ray ray = raycast(world, plugin.getConfigManager().getSettings(),
+                source.getX(), source.getY(), source.getZ(), x + 0.5, y + 0.5, z + 0.5, startedAt);
+        synchronized (this) {
+            rays.put(key, ray);
+        }
+        if (!ray.complete) {
+            approximations.incrementAndGet();
+        }
+        return ray.transmission;
+    }
+
+    /**
+     * Mark the rays through a block's chunk as stale after the block changed
+     *
+     * @param block The changed block
+     */
+    public synchronized void onBlockChange(Block block) {
+        Map<Long, Long> stamps = chunkStamps.computeIfAbsent(block.getWorld().getUID(), id -> new HashMap<>());
+        stamps.put(chunkKey(block.getX() >> 4, block.getZ() >> 4), ++generation);
+
+        // Stamps older than every cached ray are no longer needed, so start over when they pile up
+        if (stamps.size() > rays.maxRays) {
+            clear();
+        }
+    }
+
+    /**
+     * Mark the rays through a block's chunk as stale before the block changes
+     * to another material. Changes between two materials that do not shield
+     * leave the rays alone, so frequent changes like fluids flowing through
+     * air only cost a lookup.
+     *
+     * @param block The block that is about to change
+     * @param material The block's new material
+     */
+    public void onBlockChange(Block block, Material material) {
+        Settings settings = plugin.getConfigManager().getSettings();
+        if (settings.getShieldingCoefficient(block.getType()) > 0 || settings.getShieldingCoefficient(material) > 0) {
+            onBlockChange(block);
+        }
+    }
+
+    /**
+     * Drop all cached rays, e.g. after the shielding materials changed
+     */
+    public synchronized void clear() {
+        rays = new RayCache(plugin.getConfigManager().getSettings().getShieldingCacheSize());
+        chunkStamps.clear();
+        generation++;
+    }
+
+    /**
+     * Get the generation of the shielding. It changes whenever a block
+     * changes or the cached rays are dropped, so a level shielded at an
+     * older generation may be stale.
+     *
+     * @return The current generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get the number of results so far that were not exact. A level is
+     * exact if this count did not change while it was computed; the count
+     * is shared by all threads, so a concurrent approximation elsewhere only
+     * makes a level look inexact.
+     *
+     * @return The number of inexact results
+     */
+    public long getApproximations() {
+        return approximations.get();
+    }
+
+    /**
+     * Check that no chunk the ray may cross changed after it was cast
+     */
+    private boolean isFresh(Ray ray, RayKey key) {
+        Map<Long, Long> stamps = chunkStamps.get(key.worldId);
+        if (stamps == null) {
+            return true;
+        }
+
+        int minChunkX = Math.min(key.sourceX, key.targetX) >> 4;
+        int maxChunkX = Math.max(key.sourceX, key.targetX) >> 4;
+        int minChunkZ = Math.min(key.sourceZ, key.targetZ) >> 4;
+        int maxChunkZ = Math.max(key.sourceZ, key.targetZ) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                Long stamp = stamps.get(chunkKey(chunkX, chunkZ));
+                if (stamp != null && stamp > ray.castAt) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walk the blocks between two points (Amanatides and Woo) and add up the
+     * absorption of each block crossed. The blocks of both end points are
+     * skipped: the source's own block and the block the target stands in.
+     */
+    private static Ray raycast(World world, Settings settings, double fromX, double fromY, double fromZ,
+                               double toX, double toY, double toZ, long castAt) {
+        double dx = toX - fromX;
+        double dy = toY - fromY;
+        double dz = toZ - fromZ;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        int x = (int) Math.floor(fromX);
+        int y = (int) Math.floor(fromY);
+        int z = (int) Math.floor(fromZ);
+        int endX = (int) Math.floor(toX);
+        int endY = (int) Math.floor(toY);
+        int endZ = (int) Math.floor(toZ);
+
+        int stepX = Integer.signum(endX - x);
+        int stepY = Integer.signum(endY - y);
+        int stepZ = Integer.signum(endZ - z);
+
+        // Ray parameter (0 at the source, 1 at the target) at the next boundary on each axis, and between boundaries
+        double nextX = stepX == 0 ? Double.MAX_VALUE : ((stepX > 0 ? x + 1 : x) - fromX) / dx;
+        double nextY = stepY == 0 ? Double.MAX_VALUE : ((stepY > 0 ? y + 1 : y) - fromY) / dy;
+        double nextZ = stepZ == 0 ? Double.MAX_VALUE : ((stepZ > 0 ? z + 1 : z) - fromZ) / dz;
+        double deltaX = stepX == 0 ? Double.MAX_VALUE : Math.abs(1 / dx);
+        double deltaY = stepY == 0 ? Double.MAX_VALUE : Math.abs(1 / dy);
+        double deltaZ = stepZ == 0 ? Double.MAX_VALUE : Math.abs(1 / dz);
+
+        int minHeight = world.getMinHeight();
+        int maxHeight = world.getMaxHeight();
+        int chunkX = Integer.MIN_VALUE;
+        int chunkZ = Integer.MIN_VALUE;
+        boolean readable = false;
+        boolean complete = true;
+        double absorption = 0;
+        double entered = 0;
+        int steps = Math.abs(endX - x) + Math.abs(endY - y) + Math.abs(endZ - z);
+
+        for (int step = 0; step <= steps; step++) {
+            double exited = Math.min(1, Math.min(nextX, Math.min(nextY, nextZ)));
+
+            if (step > 0 && (x != endX || y != endY || z != endZ) && y >= minHeight && y < maxHeight) {
+                if (x >> 4 != chunkX || z >> 4 != chunkZ) {
+                    chunkX = x >> 4;
+                    chunkZ = z >> 4;
+                    readable = world.isChunkLoaded(chunkX, chunkZ) && Bukkit.isOwnedByCurrentRegion(world, chunkX, chunkZ);
+                    complete &= readable;
+                }
+                if (readable) {
+                    absorption += settings.getShieldingCoefficient(world.getType(x, y, z)) * (exited - entered) * length;
+                }
+            }
+
+            if (exited >= 1) {
+                break;
+            }
+
+            entered = exited;
+            if (nextX <= nextY && nextX <= nextZ) {
+                x += stepX;
+                nextX += deltaX;
+            } else if (nextY <= nextZ) {
+                y += stepY;
+                nextY += deltaY;
+            } else {
+                z += stepZ;
+                nextZ += deltaZ;
+            }
+        }
+
+        return new Ray(Math.exp(-absorption), castAt, complete);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The result of a raycast
+     */
+    private static final class Ray {
+        private final double transmission;
+        private final long castAt;
+        private final boolean complete;
+
+        private Ray(double transmission, long castAt, boolean complete) {
+            this.transmission = transmission;
+            this.castAt = castAt;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * A pair of source block and target block
+     */
+    private static final class RayKey {
+        private final UUID worldId;
+        private final int sourceX;
+        private final int sourceY;
+        private final int sourceZ;
+        private final int targetX;
+        private final int targetY;
+        private final int targetZ;
+
+        private RayKey(UUID worldId, int sourceX, int sourceY, int sourceZ, int targetX, int targetY, int targetZ) {
+            this.worldId = worldId;
+            this.sourceX = sourceX;
+            this.sourceY = sourceY;
+            this.sourceZ = sourceZ;
+            this.targetX = targetX;
+            this.targetY = targetY;
+            this.targetZ = targetZ;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof RayKey key)) {
+                return false;
+            }
+            return sourceX == key.sourceX && sourceY == key.sourceY && sourceZ == key.sourceZ
+                    && targetX == key.targetX && targetY == key.targetY && targetZ == key.targetZ
+                    && worldId.equals(key.worldId);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = worldId.hashCode();
+            hash = 31 * hash + sourceX;
+            hash = 31 * hash + sourceY;
+            hash = 31 * hash + sourceZ;
+            hash = 31 * hash + targetX;
+            hash = 31 * hash + targetY;
+            hash = 31 * hash + targetZ;
+            return hash;
+        }
+    }
+
+    /**
+     * Access-ordered map that evicts the least recently used ray
+     */
+    private static final class RayCache extends LinkedHashMap<RayKey, Ray> {
+        private final int maxRays;
+
+        private RayCache(int maxRays) {
+            super(16, 0.75f, true);
+            this.maxRays = maxRays;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RayKey, Ray> eldest) {
+            return size() > maxRays;
+        }
+    }
+}
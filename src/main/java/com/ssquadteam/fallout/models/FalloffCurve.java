@@ -0,0 +1,117 @@
+package com.ssquadteam.fallout.models;
+
+/**
+ * How the radiation of a source falls off from its center to its edge.
+ * <p>
+ * Every curve is precomputed into a table of the normalized strength (1 at
+ * the center, 0 at the edge) indexed by distance squared over radius
+ * squared, so evaluating a source needs neither a square root nor the
+ * curve function itself.
+ */
+public enum FalloffCurve {
+
+    /**
+     * Drops evenly from the center to the edge
+     */
+    LINEAR {
+        @Override
+        double shape(double t) {
+            return 1.0 - t;
+        }
+    },
+    /**
+     * Drops sharply near the center and flattens out towards the edge
+     */
+    INVERSE_SQUARE {
+        private static final double K = 15.0;
+
+        @Override
+        double shape(double t) {
+            double edge = 1.0 / (1.0 + K);
+            return (1.0 / (1.0 + K * t * t) - edge) / (1.0 - edge);
+        }
+    },
+    /**
+     * Drops by a constant fraction per block
+     */
+    EXPONENTIAL {
+        private static final double K = 4.0;
+
+        @Override
+        double shape(double t) {
+            double edge = Math.exp(-K);
+            return (Math.exp(-K * t) - edge) / (1.0 - edge);
+        }
+    },
+    /**
+     * Full strength up to half the radius, then drops evenly to the edge
+     */
+    PLATEAU {
+        private static final double PLATEAU_END = 0.5;
+
+        @Override
+        double shape(double t) {
+            return t <= PLATEAU_END ? 1.0 : (1.0 - t) / (1.0 - PLATEAU_END);
+        }
+    };
+
+    /**
+     * Number of table intervals between the center and the edge
+     */
+    public static final int TABLE_SIZE = 1024;
+
+    private final double[] table;
+
+    FalloffCurve() {
+        // One extra entry so interpolation at the edge stays in bounds
+        table = new double[TABLE_SIZE + 2];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = Math.max(0.0, Math.min(1.0, shape(Math.sqrt((double) i / TABLE_SIZE))));
+        }
+        table[TABLE_SIZE + 1] = table[TABLE_SIZE];
+    }
+
+    /**
+     * The normalized strength at a distance ratio
+     *
+     * @param t Distance from the center divided by the radius (0-1)
+     * @return The strength relative to the center (0-1)
+     */
+    abstract double shape(double t);
+
+    /**
+     * Look up the normalized strength at a position within the radius,
+     * interpolating between table entries
+     *
+     * @param ratioSquared Distance squared divided by radius squared (0-1)
+     * @return The strength relative to the center (0-1)
+     */
+    public double factor(double ratioSquared) {
+        double position = ratioSquared * TABLE_SIZE;
+        int index = (int) position;
+        if (index >= TABLE_SIZE) {
+            return table[TABLE_SIZE];
+        }
+
+        double low = table[index];
+        return low + (table[index + 1] - low) * (position - index);
+    }
+
+    /**
+     * Parse a curve name, ignoring case
+     *
+     * @param name The name
+     * @return The curve, or null if the name is unknown
+     */
+    public static FalloffCurve fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
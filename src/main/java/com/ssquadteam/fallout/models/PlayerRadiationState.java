@@ -0,0 +1,375 @@
+package com.ssquadteam.fallout.models;
+
+import com.ssquadteam.fallout.config.DecayCurve;
+import com.ssquadteam.fallout.config.RadiationEffectTable;
+import com.ssquadteam.fallout.config.Settings;
+import org.bukkit.World;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * All radiation state of an online player, kept in one object so the
+ * per-tick loop touches a single record per player
+ */
+public class PlayerRadiationState {
+
+    private static final long NO_SHIELDING = -1;
+
+    private final Player player;
+    private final UUID uuid;
+    private int slot = -1;
+
+    // Level at levelTime, decaying from then on while the player is outside of radiation zones
+    private int radiationLevel;
+    private long levelTime;
+    private boolean decaying = true;
+    private long radXExpiry;
+    private volatile boolean dirty;
+    private int damageTicks;
+
+    // Displayed boss bar
+    private BossBar bossBar;
+    private boolean bossBarShared;
+    private int bossBarLevel;
+    private Settings bossBarSettings;
+
+    // Last applied effect tier
+    private RadiationEffectTable effectTable;
+    private int effectTier = RadiationEffectTable.NO_TIER;
+    private long effectRefreshAt;
+
+    // Cached resistance
+    private Settings resistanceSettings;
+    private double resistance;
+    private long resistanceValidUntil;
+
+    // Last evaluated position
+    private World sampleWorld;
+    private int sampleX;
+    private int sampleY;
+    private int sampleZ;
+    private long sampleVersion;
+    private int sampleLevel;
+
+    // Shielded level at the sampled position, and the shielding generation it was computed at
+    private int shieldedLevel;
+    private long shieldedGeneration = NO_SHIELDING;
+
+    // Radiation zone the player is inside, tracked for enter and leave events
+    private RadiationSource zone;
+    private boolean zoneSearched;
+
+    /**
+     * Create the state of a player
+     *
+     * @param player The player
+     * @param radiationLevel The stored radiation level
+     * @param levelTime The time in milliseconds the stored level was set
+     * @param radXExpiry The stored Rad-X expiry time in milliseconds, or 0 if none
+     */
+    public PlayerRadiationState(Player player, int radiationLevel, long levelTime, long radXExpiry) {
+        this.player = player;
+        this.uuid = player.getUniqueId();
+        this.radiationLevel = radiationLevel;
+        this.levelTime = levelTime;
+        this.radXExpiry = radXExpiry;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * @return The dense index of this player in the online table, or -1 if not online
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    /**
+     * Get the current radiation level, with decay applied if the player is
+     * outside of radiation zones
+     *
+     * @param curve The decay curve
+     * @param now The current time in milliseconds
+     * @return The current radiation level
+     */
+    public int getRadiationLevel(DecayCurve curve, long now) {
+        return decaying ? curve.apply(radiationLevel, now - levelTime) : radiationLevel;
+    }
+
+    /**
+     * @return The level at {@link #getLevelTime()}, before decay
+     */
+    public int getStoredLevel() {
+        return radiationLevel;
+    }
+
+    /**
+     * @return The time in milliseconds the stored level was set
+     */
+    public long getLevelTime() {
+        return levelTime;
+    }
+
+    /**
+     * Set the radiation level as of now
+     *
+     * @param radiationLevel The new level
+     * @param now The current time in milliseconds
+     */
+    public void setRadiationLevel(int radiationLevel, long now) {
+        // The time only matters for a level that can still decay
+        if (this.radiationLevel != radiationLevel || (radiationLevel > 0 && levelTime != now)) {
+            this.radiationLevel = radiationLevel;
+            this.levelTime = now;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * @return true if the level decays, i.e. the player is outside of radiation zones
+     */
+    public boolean isDecaying() {
+        return decaying;
+    }
+
+    /**
+     * Start or stop decay, keeping the level reached so far
+     *
+     * @param decaying Whether the level decays from now on
+     * @param curve The decay curve
+     * @param now The current time in milliseconds
+     */
+    public void setDecaying(boolean decaying, DecayCurve curve, long now) {
+        if (this.decaying != decaying) {
+            setRadiationLevel(getRadiationLevel(curve, now), now);
+            this.decaying = decaying;
+        }
+    }
+
+    /**
+     * @return The Rad-X expiry time in milliseconds, or 0 if none
+     */
+    public long getRadXExpiry() {
+        return radXExpiry;
+    }
+
+    public void setRadXExpiry(long radXExpiry) {
+        if (this.radXExpiry != radXExpiry) {
+            this.radXExpiry = radXExpiry;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * @return true if the stored data changed since it was last saved
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Clear the dirty flag. Call this before reading the data to save, so a
+     * change made while saving marks the state dirty again.
+     */
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * @return The boss bar the player is shown, or null if none
+     */
+    public BossBar getBossBar() {
+        return bossBar;
+    }
+
+    /**
+     * @return true if the displayed boss bar is shared with other players
+     */
+    public boolean isBossBarShared() {
+        return bossBarShared;
+    }
+
+    /**
+     * @return The level the displayed boss bar shows
+     */
+    public int getBossBarLevel() {
+        return bossBarLevel;
+    }
+
+    /**
+     * @return The settings the displayed boss bar was created with
+     */
+    public Settings getBossBarSettings() {
+        return bossBarSettings;
+    }
+
+    public void setBossBar(BossBar bossBar, boolean shared, int level, Settings settings) {
+        this.bossBar = bossBar;
+        this.bossBarShared = shared;
+        this.bossBarLevel = level;
+        this.bossBarSettings = settings;
+    }
+
+    public void clearBossBar() {
+        setBossBar(null, false, 0, null);
+    }
+
+    /**
+     * Count a check towards the next damage tick
+     *
+     * @param interval The number of checks between damage ticks
+     * @return true if damage is due in this check
+     */
+    public boolean tickDamage(int interval) {
+        if (++damageTicks < interval) {
+            return false;
+        }
+
+        damageTicks = 0;
+        return true;
+    }
+
+    /**
+     * Check if the effects of a tier are still applied and not about to expire
+     *
+     * @param table The current effect table
+     * @param tier The tier
+     * @param now The current time in milliseconds
+     * @return true if the effects do not need to be re-applied
+     */
+    public boolean hasEffectTier(RadiationEffectTable table, int tier, long now) {
+        return effectTable == table && effectTier == tier && now < effectRefreshAt;
+    }
+
+    public void setEffectTier(RadiationEffectTable table, int tier, long refreshAt) {
+        this.effectTable = table;
+        this.effectTier = tier;
+        this.effectRefreshAt = refreshAt;
+    }
+
+    public void clearEffectTier() {
+        setEffectTier(null, RadiationEffectTable.NO_TIER, 0);
+    }
+
+    /**
+     * Check if the cached resistance is still valid
+     *
+     * @param settings The current settings
+     * @param now The current time in milliseconds
+     * @return true if the cached resistance can be used
+     */
+    public boolean hasResistance(Settings settings, long now) {
+        return resistanceSettings == settings && now < resistanceValidUntil;
+    }
+
+    public double getResistance() {
+        return resistance;
+    }
+
+    public void setResistance(Settings settings, double resistance, long validUntil) {
+        this.resistanceSettings = settings;
+        this.resistance = resistance;
+        this.resistanceValidUntil = validUntil;
+    }
+
+    public void invalidateResistance() {
+        this.resistanceValidUntil = 0;
+    }
+
+    /**
+     * Check if the player was last evaluated at a block with the same source version
+     *
+     * @return true if the sampled level can be reused
+     */
+    public boolean matchesSample(World world, int blockX, int blockY, int blockZ, long sourceVersion) {
+        return sampleWorld == world
+                && sampleX == blockX
+                && sampleY == blockY
+                && sampleZ == blockZ
+                && sampleVersion == sourceVersion;
+    }
+
+    public int getSampleLevel() {
+        return sampleLevel;
+    }
+
+    public void setSample(World world, int blockX, int blockY, int blockZ, long sourceVersion, int level) {
+        // The shielded level only holds for the position and sources it was computed for
+        if (!matchesSample(world, blockX, blockY, blockZ, sourceVersion)) {
+            this.shieldedGeneration = NO_SHIELDING;
+            this.zoneSearched = false;
+        }
+        this.sampleWorld = world;
+        this.sampleX = blockX;
+        this.sampleY = blockY;
+        this.sampleZ = blockZ;
+        this.sampleVersion = sourceVersion;
+        this.sampleLevel = level;
+    }
+
+    /**
+     * Check if a shielded level was computed at the sampled position
+     *
+     * @return true if {@link #getShieldedLevel()} holds a level
+     */
+    public boolean hasShieldedLevel() {
+        return shieldedGeneration != NO_SHIELDING;
+    }
+
+    /**
+     * Check if the shielded level at the sampled position is still current
+     *
+     * @param generation The current shielding generation
+     * @return true if the shielded level can be reused
+     */
+    public boolean matchesShielding(long generation) {
+        return shieldedGeneration == generation;
+    }
+
+    public int getShieldedLevel() {
+        return shieldedLevel;
+    }
+
+    public void setShieldedLevel(int level, long generation) {
+        this.shieldedLevel = level;
+        this.shieldedGeneration = generation;
+    }
+
+    /**
+     * @return The radiation zone the player is inside, or null if none
+     */
+    public RadiationSource getZone() {
+        return zone;
+    }
+
+    public void setZone(RadiationSource zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @return true if the zones at the sampled position were already searched for one to enter
+     */
+    public boolean isZoneSearched() {
+        return zoneSearched;
+    }
+
+    public void setZoneSearched(boolean searched) {
+        this.zoneSearched = searched;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ssquadteam.fallout.models;
+
+import java.util.UUID;
+
+/**
+ * Immutable copy of a player's stored radiation data, taken when the data is
+ * saved so it can be written off the thread that owns the player
+ */
+public final class PlayerRecord {
+
+    private final UUID uuid;
+    private final int radiationLevel;
+    private final long levelTime;
+    private final long radXExpiry;
+
+    /**
+     * @param uuid The player UUID
+     * @param radiationLevel The radiation level
+     * @param levelTime The time in milliseconds the level was set and decays from, or 0 if unknown
+     * @param radXExpiry The Rad-X expiry time in milliseconds, or 0 if none
+     */
+    public PlayerRecord(UUID uuid, int radiationLevel, long levelTime, long radXExpiry) {
+        this.uuid = uuid;
+        this.radiationLevel = radiationLevel;
+        this.levelTime = levelTime;
+        this.radXExpiry = radXExpiry;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * @return The radiation level at {@link #getLevelTime()}, before decay
+     */
+    public int getRadiationLevel() {
+        return radiationLevel;
+    }
+
+    /**
+     * @return The time in milliseconds the level was set and decays from, or 0 if unknown
+     */
+    public long getLevelTime() {
+        return levelTime;
+    }
+
+    /**
+     * @return The Rad-X expiry time in milliseconds, or 0 if none
+     */
+    public long getRadXExpiry() {
+        return radXExpiry;
+    }
+
+    /**
+     * Check if there is nothing left to store for the player
+     *
+     * @param now The current time in milliseconds
+     * @return true if the player has no radiation and no active Rad-X effect
+     */
+    public boolean isEmpty(long now) {
+        return radiationLevel <= 0 && radXExpiry <= now;
+    }
+}
@@ -1,6 +1,7 @@
 package com.ssquadteam.fallout.models;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.SerializableAs;
 
@@ -10,18 +11,29 @@ import java.util.Objects;
 import java.util.UUID;
 
 /**
- * Represents a radiation source in the world
+ * Represents a radiation source in the world. A source without a shape is a
+ * sphere of its radius around its location; a source with a
+ * {@link ZoneShape} emits its full strength inside the shape and falls off
+ * over its radius outside of it.
  */
 @SerializableAs("RadiationSource")
 public class RadiationSource implements ConfigurationSerializable {
 
+    /**
+     * The highest radiation level a source can emit
+     */
+    public static final int MAX_LEVEL = 100;
+
     private UUID id;
     private String name;
     private Location location;
     private int radius;
     private int strength;
     private int power;
+    private FalloffCurve falloff;
+    private ZoneShape shape;
     private boolean active;
+    private ChangeListener changeListener;
 
     /**
      * Create a new radiation source
@@ -33,12 +45,43 @@ public class RadiationSource implements ConfigurationSerializable {
      * @param power How quickly radiation builds up (1-10)
      */
     public RadiationSource(String name, Location location, int radius, int strength, int power) {
+        this(name, location, radius, strength, power, FalloffCurve.LINEAR);
+    }
+
+    /**
+     * Create a new radiation source
+     * 
+     * @param name The name of the radiation source
+     * @param location The location of the radiation source
+     * @param radius The radius of effect in blocks
+     * @param strength The strength of radiation at center (0-100)
+     * @param power How quickly radiation builds up (1-10)
+     * @param falloff How the radiation falls off towards the edge
+     */
+    public RadiationSource(String name, Location location, int radius, int strength, int power, FalloffCurve falloff) {
+        this(name, location, null, radius, strength, power, falloff);
+    }
+
+    /**
+     * Create a new shaped radiation zone
+     * 
+     * @param name The name of the radiation source
+     * @param location A location in the zone's world, used as its anchor
+     * @param shape The shape of the zone, or null for a sphere around the location
+     * @param radius The distance in blocks over which the radiation falls off outside the shape
+     * @param strength The strength of radiation inside the shape (0-100)
+     * @param power How quickly radiation builds up (1-10)
+     * @param falloff How the radiation falls off towards the edge
+     */
+    public RadiationSource(String name, Location location, ZoneShape shape, int radius, int strength, int power, FalloffCurve falloff) {
         this.id = UUID.randomUUID();
+        this.shape = shape;
         this.name = name;
         this.location = location;
         this.radius = Math.max(1, radius);
         this.strength = Math.min(100, Math.max(1, strength));
         this.power = Math.min(10, Math.max(1, power));
+        this.falloff = falloff;
         this.active = true;
     }
 
@@ -56,6 +99,13 @@ public class RadiationSource implements ConfigurationSerializable {
         this.strength = (int) map.get("strength");
         this.power = (int) map.get("power");
         this.active = (boolean) map.get("active");
+
+        // Sources saved before falloff curves existed are linear
+        FalloffCurve curve = FalloffCurve.fromName((String) map.get("falloff"));
+        this.falloff = curve != null ? curve : FalloffCurve.LINEAR;
+
+        String shapeText = (String) map.get("shape");
+        this.shape = shapeText != null ? ZoneShape.parse(shapeText) : null;
     }
 
     /**
@@ -72,6 +122,10 @@ public class RadiationSource implements ConfigurationSerializable {
         map.put("radius", radius);
         map.put("strength", strength);
         map.put("power", power);
+        map.put("falloff", falloff.name());
+        if (shape != null) {
+            map.put("shape", shape.serialize());
+        }
         map.put("active", active);
         return map;
     }
@@ -87,22 +141,66 @@ public class RadiationSource implements ConfigurationSerializable {
             return 0;
         }
 
-        double distance = location.distance(target);
+        double distanceSquared = shape != null
+                ? shape.distanceSquared(target.getX(), target.getY(), target.getZ())
+                : location.distanceSquared(target);
+        double radiusSquared = (double) radius * radius;
         
         // If outside radius, no radiation
-        if (distance > radius) {
+        if (distanceSquared > radiusSquared) {
             return 0;
         }
         
-        // Linear falloff based on distance
-        double distanceRatio = 1.0 - (distance / radius);
-        int radiationLevel = (int) (strength * distanceRatio);
+        return getRadiationLevel(strength, power, falloff, distanceSquared / radiusSquared);
+    }
+
+    /**
+     * Check whether a position is within the reach of this source, extended
+     * by a margin
+     * 
+     * @param world The world of the position
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param margin The distance in blocks to extend the radius by
+     * @return true if the source is active and the position is within reach
+     */
+    public boolean isInRange(World world, double x, double y, double z, double margin) {
+        if (!active || !world.equals(location.getWorld())) {
+            return false;
+        }
+
+        double distanceSquared;
+        if (shape != null) {
+            distanceSquared = shape.distanceSquared(x, y, z);
+        } else {
+            double dx = x - location.getX();
+            double dy = y - location.getY();
+            double dz = z - location.getZ();
+            distanceSquared = dx * dx + dy * dy + dz * dz;
+        }
+        double reach = radius + margin;
+        return distanceSquared <= reach * reach;
+    }
+
+    /**
+     * Calculate the radiation level of a source with the given parameters at
+     * a position within its radius
+     * 
+     * @param strength The strength at the center (0-100)
+     * @param power The power (1-10)
+     * @param falloff The falloff curve
+     * @param ratioSquared Distance squared divided by radius squared (0-1)
+     * @return Radiation level (0-100)
+     */
+    public static int getRadiationLevel(int strength, int power, FalloffCurve falloff, double ratioSquared) {
+        int radiationLevel = (int) (strength * falloff.factor(ratioSquared));
         
         // Apply power factor (affects how quickly radiation builds up)
         double powerFactor = power / 5.0; // Power 5 = 1.0x multiplier
         radiationLevel = (int) (radiationLevel * powerFactor);
         
-        return Math.min(100, Math.max(0, radiationLevel));
+        return Math.min(MAX_LEVEL, Math.max(0, radiationLevel));
     }
 
     // Getters and setters
@@ -125,6 +223,7 @@ public class RadiationSource implements ConfigurationSerializable {
 
     public void setLocation(Location location) {
         this.location = location;
+        notifyChanged();
     }
 
     public int getRadius() {
@@ -133,6 +232,7 @@ public class RadiationSource implements ConfigurationSerializable {
 
     public void setRadius(int radius) {
         this.radius = Math.max(1, radius);
+        notifyChanged();
     }
 
     public int getStrength() {
@@ -141,6 +241,7 @@ public class RadiationSource implements ConfigurationSerializable {
 
     public void setStrength(int strength) {
         this.strength = Math.min(100, Math.max(1, strength));
+        notifyChanged();
     }
 
     public int getPower() {
@@ -149,6 +250,23 @@ public class RadiationSource implements ConfigurationSerializable {
 
     public void setPower(int power) {
         this.power = Math.min(10, Math.max(1, power));
+        notifyChanged();
+    }
+
+    public FalloffCurve getFalloff() {
+        return falloff;
+    }
+
+    public void setFalloff(FalloffCurve falloff) {
+        this.falloff = falloff;
+        notifyChanged();
+    }
+
+    /**
+     * @return The shape of the zone, or null if the source is a sphere
+     */
+    public ZoneShape getShape() {
+        return shape;
     }
 
     public boolean isActive() {
@@ -157,6 +275,23 @@ public class RadiationSource implements ConfigurationSerializable {
 
     public void setActive(boolean active) {
         this.active = active;
+        notifyChanged();
+    }
+
+    /**
+     * Set the listener that is notified when this source changes in a way
+     * that affects the radiation it emits
+     *
+     * @param changeListener The listener, or null to remove it
+     */
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void notifyChanged() {
+        if (changeListener != null) {
+            changeListener.onSourceChanged(this);
+        }
     }
 
     @Override
@@ -181,7 +316,16 @@ public class RadiationSource implements ConfigurationSerializable {
                 ", radius=" + radius +
                 ", strength=" + strength +
                 ", power=" + power +
+                ", falloff=" + falloff +
+                ", shape=" + shape +
                 ", active=" + active +
                 '}';
     }
+
+    /**
+     * Listener for changes to a radiation source
+     */
+    public interface ChangeListener {
+        void onSourceChanged(RadiationSource source);
+    }
 } 
\ No newline at end of file
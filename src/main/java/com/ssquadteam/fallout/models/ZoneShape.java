@@ -0,0 +1,492 @@
+package com.ssquadteam.fallout.models;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The shape of a non-spherical radiation zone, in absolute block
+ * coordinates of the zone's world. A shaped zone emits its full strength
+ * everywhere inside the shape, and its radius is the distance over which
+ * the radiation falls off outside of it, so one zone can cover a building
+ * or a street that would otherwise take many overlapping spheres.
+ * <p>
+ * Shapes are immutable and are stored as a single line of text, e.g.
+ * {@code CUBOID 0 60 0 16 80 32}, so every storage backend can keep them
+ * in one field.
+ */
+public abstract class ZoneShape {
+
+    // Number of straight edges that outline the circles of a cylinder
+    private static final int OUTLINE_SEGMENTS = 32;
+
+    private ZoneShape() {
+    }
+
+    /**
+     * Get the squared distance from a position to the shape
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The squared distance, 0 inside the shape
+     */
+    public abstract double distanceSquared(double x, double y, double z);
+
+    public abstract Type getType();
+
+    public abstract double getMinX();
+
+    public abstract double getMinY();
+
+    public abstract double getMinZ();
+
+    public abstract double getMaxX();
+
+    public abstract double getMaxY();
+
+    public abstract double getMaxZ();
+
+    /**
+     * Get the edges that outline the shape, e.g. to draw it with particles.
+     * Curved sides are approximated by straight edges.
+     *
+     * @return The edges as consecutive x1, y1, z1, x2, y2, z2 values
+     */
+    public abstract double[] getOutline();
+
+    /**
+     * @return The shape as a line of text that {@link #parse(String)} reads back
+     */
+    public abstract String serialize();
+
+    /**
+     * Create an axis-aligned box between two opposite corners
+     *
+     * @param x1 The x coordinate of the first corner
+     * @param y1 The y coordinate of the first corner
+     * @param z1 The z coordinate of the first corner
+     * @param x2 The x coordinate of the second corner
+     * @param y2 The y coordinate of the second corner
+     * @param z2 The z coordinate of the second corner
+     * @return The shape
+     */
+    public static ZoneShape cuboid(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return new Cuboid(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2));
+    }
+
+    /**
+     * Create a vertical cylinder
+     *
+     * @param centerX The x coordinate of the axis
+     * @param centerZ The z coordinate of the axis
+     * @param radius The radius of the cylinder
+     * @param minY The bottom of the cylinder
+     * @param maxY The top of the cylinder
+     * @return The shape
+     */
+    public static ZoneShape cylinder(double centerX, double centerZ, double radius, double minY, double maxY) {
+        if (radius <= 0) {
+            throw new IllegalArgumentException("The radius of a cylinder must be positive");
+        }
+        return new Cylinder(centerX, centerZ, radius, Math.min(minY, maxY), Math.max(minY, maxY));
+    }
+
+    /**
+     * Create a vertical prism with a polygon as its base
+     *
+     * @param xs The x coordinates of the vertices
+     * @param zs The z coordinates of the vertices
+     * @param minY The bottom of the prism
+     * @param maxY The top of the prism
+     * @return The shape
+     */
+    public static ZoneShape polygon(double[] xs, double[] zs, double minY, double maxY) {
+        if (xs.length != zs.length || xs.length < 3) {
+            throw new IllegalArgumentException("A polygon needs at least 3 vertices");
+        }
+        return new Polygon(xs.clone(), zs.clone(), Math.min(minY, maxY), Math.max(minY, maxY));
+    }
+
+    /**
+     * Read a shape written by {@link #serialize()}
+     *
+     * @param text The serialized shape
+     * @return The shape
+     * @throws IllegalArgumentException If the text is not a valid shape
+     */
+    public static ZoneShape parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        Type type;
+        try {
+            type = Type.valueOf(parts[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown zone shape: " + parts[0]);
+        }
+
+        double[] values = new double[parts.length - 1];
+        try {
+            for (int i = 1; i < parts.length; i++) {
+                values[i - 1] = Double.parseDouble(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in zone shape: " + text);
+        }
+
+        switch (type) {
+            case CUBOID:
+                requireValues(type, values, 6);
+                return cuboid(values[0], values[1], values[2], values[3], values[4], values[5]);
+            case CYLINDER:
+                requireValues(type, values, 5);
+                return cylinder(values[0], values[1], values[2], values[3], values[4]);
+            default:
+                if (values.length < 8 || values.length % 2 != 0) {
+                    throw new IllegalArgumentException("Invalid polygon: " + text);
+                }
+                int count = (values.length - 2) / 2;
+                double[] xs = new double[count];
+                double[] zs = new double[count];
+                for (int i = 0; i < count; i++) {
+                    xs[i] = values[2 + i * 2];
+                    zs[i] = values[3 + i * 2];
+                }
+                return polygon(xs, zs, values[0], values[1]);
+        }
+    }
+
+    private static void requireValues(Type type, double[] values, int count) {
+        if (values.length != count) {
+            throw new IllegalArgumentException(type + " needs " + count + " values, got " + values.length);
+        }
+    }
+
+    /**
+     * Outline a vertical prism: the base polygon at the bottom and the top,
+     * and a vertical edge at every vertex
+     */
+    private static double[] prismOutline(double[] xs, double[] zs, double minY, double maxY) {
+        double[] edges = new double[xs.length * 3 * 6];
+        int offset = 0;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            offset = putEdge(edges, offset, xs[j], minY, zs[j], xs[i], minY, zs[i]);
+            offset = putEdge(edges, offset, xs[j], maxY, zs[j], xs[i], maxY, zs[i]);
+            offset = putEdge(edges, offset, xs[i], minY, zs[i], xs[i], maxY, zs[i]);
+        }
+        return edges;
+    }
+
+    private static int putEdge(double[] edges, int offset, double x1, double y1, double z1, double x2, double y2, double z2) {
+        edges[offset] = x1;
+        edges[offset + 1] = y1;
+        edges[offset + 2] = z1;
+        edges[offset + 3] = x2;
+        edges[offset + 4] = y2;
+        edges[offset + 5] = z2;
+        return offset + 6;
+    }
+
+    private static double outside(double value, double min, double max) {
+        return value < min ? min - value : value > max ? value - max : 0;
+    }
+
+    @Override
+    public String toString() {
+        return serialize();
+    }
+
+    /**
+     * Zone shape types
+     */
+    public enum Type {
+        /**
+         * Axis-aligned box
+         */
+        CUBOID,
+        /**
+         * Vertical cylinder
+         */
+        CYLINDER,
+        /**
+         * Vertical prism with a polygon as its base
+         */
+        POLYGON
+    }
+
+    private static final class Cuboid extends ZoneShape {
+        private final double minX;
+        private final double minY;
+        private final double minZ;
+        private final double maxX;
+        private final double maxY;
+        private final double maxZ;
+
+        private Cuboid(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        @Override
+        public double distanceSquared(double x, double y, double z) {
+            double dx = outside(x, minX, maxX);
+            double dy = outside(y, minY, maxY);
+            double dz = outside(z, minZ, maxZ);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.CUBOID;
+        }
+
+        @Override
+        public double getMinX() {
+            return minX;
+        }
+
+        @Override
+        public double getMinY() {
+            return minY;
+        }
+
+        @Override
+        public double getMinZ() {
+            return minZ;
+        }
+
+        @Override
+        public double getMaxX() {
+            return maxX;
+        }
+
+        @Override
+        public double getMaxY() {
+            return maxY;
+        }
+
+        @Override
+        public double getMaxZ() {
+            return maxZ;
+        }
+
+        @Override
+        public double[] getOutline() {
+            return prismOutline(new double[]{minX, maxX, maxX, minX}, new double[]{minZ, minZ, maxZ, maxZ}, minY, maxY);
+        }
+
+        @Override
+        public String serialize() {
+            return Type.CUBOID + " " + minX + " " + minY + " " + minZ + " " + maxX + " " + maxY + " " + maxZ;
+        }
+    }
+
+    private static final class Cylinder extends ZoneShape {
+        private final double centerX;
+        private final double centerZ;
+        private final double radius;
+        private final double minY;
+        private final double maxY;
+
+        private Cylinder(double centerX, double centerZ, double radius, double minY, double maxY) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        public double distanceSquared(double x, double y, double z) {
+            double dx = x - centerX;
+            double dz = z - centerZ;
+            double horizontal = Math.max(0, Math.sqrt(dx * dx + dz * dz) - radius);
+            double dy = outside(y, minY, maxY);
+            return horizontal * horizontal + dy * dy;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.CYLINDER;
+        }
+
+        @Override
+        public double getMinX() {
+            return centerX - radius;
+        }
+
+        @Override
+        public double getMinY() {
+            return minY;
+        }
+
+        @Override
+        public double getMinZ() {
+            return centerZ - radius;
+        }
+
+        @Override
+        public double getMaxX() {
+            return centerX + radius;
+        }
+
+        @Override
+        public double getMaxY() {
+            return maxY;
+        }
+
+        @Override
+        public double getMaxZ() {
+            return centerZ + radius;
+        }
+
+        @Override
+        public double[] getOutline() {
+            double[] xs = new double[OUTLINE_SEGMENTS];
+            double[] zs = new double[OUTLINE_SEGMENTS];
+            for (int i = 0; i < OUTLINE_SEGMENTS; i++) {
+                double angle = 2 * Math.PI * i / OUTLINE_SEGMENTS;
+                xs[i] = centerX + radius * Math.cos(angle);
+                zs[i] = centerZ + radius * Math.sin(angle);
+            }
+
+            // Only a few of the vertical edges, the circles carry the shape
+            double[] edges = prismOutline(xs, zs, minY, maxY);
+            int kept = 0;
+            for (int i = 0; i < OUTLINE_SEGMENTS; i++) {
+                if (i % (OUTLINE_SEGMENTS / 4) != 0) {
+                    System.arraycopy(edges, i * 18, edges, kept, 12);
+                    kept += 12;
+                } else {
+                    System.arraycopy(edges, i * 18, edges, kept, 18);
+                    kept += 18;
+                }
+            }
+            return Arrays.copyOf(edges, kept);
+        }
+
+        @Override
+        public String serialize() {
+            return Type.CYLINDER + " " + centerX + " " + centerZ + " " + radius + " " + minY + " " + maxY;
+        }
+    }
+
+    private static final class Polygon extends ZoneShape {
+        private final double[] xs;
+        private final double[] zs;
+        private final double minY;
+        private final double maxY;
+        private final double minX;
+        private final double minZ;
+        private final double maxX;
+        private final double maxZ;
+
+        private Polygon(double[] xs, double[] zs, double minY, double maxY) {
+            this.xs = xs;
+            this.zs = zs;
+            this.minY = minY;
+            this.maxY = maxY;
+
+            double lowX = xs[0];
+            double lowZ = zs[0];
+            double highX = xs[0];
+            double highZ = zs[0];
+            for (int i = 1; i < xs.length; i++) {
+                lowX = Math.min(lowX, xs[i]);
+                lowZ = Math.min(lowZ, zs[i]);
+                highX = Math.max(highX, xs[i]);
+                highZ = Math.max(highZ, zs[i]);
+            }
+            this.minX = lowX;
+            this.minZ = lowZ;
+            this.maxX = highX;
+            this.maxZ = highZ;
+        }
+
+        @Override
+        public double distanceSquared(double x, double y, double z) {
+            double dy = outside(y, minY, maxY);
+            return horizontalDistanceSquared(x, z) + dy * dy;
+        }
+
+        private double horizontalDistanceSquared(double x, double z) {
+            boolean inside = false;
+            double nearest = Double.MAX_VALUE;
+
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                double x1 = xs[j];
+                double z1 = zs[j];
+                double x2 = xs[i];
+                double z2 = zs[i];
+
+                // Even-odd rule: count the edges a ray along +x crosses
+                if ((z2 > z) != (z1 > z) && x < (x1 - x2) * (z - z2) / (z1 - z2) + x2) {
+                    inside = !inside;
+                }
+
+                // Squared distance to the closest point of the edge
+                double ex = x2 - x1;
+                double ez = z2 - z1;
+                double lengthSquared = ex * ex + ez * ez;
+                double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((x - x1) * ex + (z - z1) * ez) / lengthSquared));
+                double dx = x - (x1 + t * ex);
+                double dz = z - (z1 + t * ez);
+                nearest = Math.min(nearest, dx * dx + dz * dz);
+            }
+
+            return inside ? 0 : nearest;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.POLYGON;
+        }
+
+        @Override
+        public double getMinX() {
+            return minX;
+        }
+
+        @Override
+        public double getMinY() {
+            return minY;
+        }
+
+        @Override
+        public double getMinZ() {
+            return minZ;
+        }
+
+        @Override
+        public double getMaxX() {
+            return maxX;
+        }
+
+        @Override
+        public double getMaxY() {
+            return maxY;
+        }
+
+        @Override
+        public double getMaxZ() {
+            return maxZ;
+        }
+
+        @Override
+        public double[] getOutline() {
+            return prismOutline(xs, zs, minY, maxY);
+        }
+
+        @Override
+        public String serialize() {
+            StringBuilder builder = new StringBuilder(Type.POLYGON.name()).append(' ').append(minY).append(' ').append(maxY);
+            for (int i = 0; i < xs.length; i++) {
+                builder.append(' ').append(xs[i]).append(' ').append(zs[i]);
+            }
+            return builder.toString();
+        }
+    }
+}
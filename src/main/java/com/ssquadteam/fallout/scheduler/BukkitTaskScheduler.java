@@ -0,0 +1,81 @@
+package com.ssquadteam.fallout.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Scheduler for single-threaded servers, backed by the Bukkit scheduler
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+
+    public BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return false;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delay, long period) {
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task) {
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (entity.isValid()) {
+                task.run();
+            }
+        });
+    }
+
+    @Override
+    public Task runEntityTimer(Entity entity, Runnable task, long delay, long period) {
+        if (!entity.isValid()) {
+            return null;
+        }
+
+        // Stop with the entity, like Folia's entity scheduler does
+        BukkitRunnable runnable = new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (!entity.isValid()) {
+                    cancel();
+                    return;
+                }
+                task.run();
+            }
+        };
+        BukkitTask scheduled = runnable.runTaskTimer(plugin, delay, period);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void runForChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getScheduler().cancelTasks(plugin);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ssquadteam.fallout.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Scheduler for region-threaded servers, backed by Folia's global, entity
+ * and async schedulers
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+
+    public FoliaTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return true;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delay, long period) {
+        // Folia rejects a delay of 0 for repeating tasks
+        ScheduledTask scheduled = Bukkit.getGlobalRegionScheduler()
+                .runAtFixedRate(plugin, ignored -> task.run(), Math.max(1, delay), period);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task) {
+        entity.getScheduler().execute(plugin, task, null, 1L);
+    }
+
+    @Override
+    public Task runEntityTimer(Entity entity, Runnable task, long delay, long period) {
+        ScheduledTask scheduled = entity.getScheduler()
+                .runAtFixedRate(plugin, ignored -> task.run(), null, Math.max(1, delay), period);
+        return scheduled != null ? scheduled::cancel : null;
+    }
+
+    @Override
+    public void runForChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        Bukkit.getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getAsyncScheduler().runNow(plugin, ignored -> task.run());
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+        Bukkit.getAsyncScheduler().cancelTasks(plugin);
+    }
+}
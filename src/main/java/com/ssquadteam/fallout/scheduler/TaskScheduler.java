@@ -0,0 +1,106 @@
+package com.ssquadteam.fallout.scheduler;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Schedules the plugin's tasks on the right thread for the server
+ * implementation. On Paper everything runs on the main thread, on Folia
+ * entity work runs on the thread that owns the entity's region.
+ */
+public interface TaskScheduler {
+
+    /**
+     * Create the scheduler for the running server
+     *
+     * @param plugin The owning plugin
+     * @return A Folia scheduler on region-threaded servers, the Bukkit scheduler otherwise
+     */
+    static TaskScheduler create(Plugin plugin) {
+        return isFolia() ? new FoliaTaskScheduler(plugin) : new BukkitTaskScheduler(plugin);
+    }
+
+    /**
+     * @return true if the server is region-threaded (Folia)
+     */
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if entities are ticked on different threads
+     */
+    boolean isRegionThreaded();
+
+    /**
+     * Run a task once on the global thread (the main thread on Paper)
+     *
+     * @param task The task
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Run a task repeatedly on the global thread (the main thread on Paper)
+     *
+     * @param task The task
+     * @param delay The delay before the first run, in ticks
+     * @param period The period between runs, in ticks
+     * @return The scheduled task
+     */
+    Task runGlobalTimer(Runnable task, long delay, long period);
+
+    /**
+     * Run a task once on the thread that owns an entity
+     *
+     * @param entity The entity
+     * @param task The task, not run if the entity is removed first
+     */
+    void runForEntity(Entity entity, Runnable task);
+
+    /**
+     * Run a task repeatedly on the thread that owns an entity, until the
+     * entity is removed or the task is cancelled
+     *
+     * @param entity The entity
+     * @param task The task
+     * @param delay The delay before the first run, in ticks
+     * @param period The period between runs, in ticks
+     * @return The scheduled task, or null if the entity is already removed
+     */
+    Task runEntityTimer(Entity entity, Runnable task, long delay, long period);
+
+    /**
+     * Run a task once on the thread that owns a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     * @param task The task
+     */
+    void runForChunk(World world, int chunkX, int chunkZ, Runnable task);
+
+    /**
+     * Run a task once off the server threads
+     *
+     * @param task The task
+     */
+    void runAsync(Runnable task);
+
+    /**
+     * Cancel all tasks of the plugin
+     */
+    void cancelAll();
+
+    /**
+     * Handle of a scheduled task
+     */
+    interface Task {
+        void cancel();
+    }
+}
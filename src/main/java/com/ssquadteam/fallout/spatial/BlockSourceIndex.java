@@ -0,0 +1,249 @@
+package com.ssquadteam.fallout.spatial;
+
+import com.ssquadteam.fallout.config.Settings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the radioactive blocks of the loaded chunks, kept per chunk
+ * section. Every block is also registered in the {@link SourceGrid} as a
+ * small source, so the radiation of blocks is found by the same lookup as
+ * the radiation of placed sources and nothing scans blocks per check.
+ * <p>
+ * Changes rebuild only the sections they touch, and drop the cached field
+ * around them. Safe to call from any thread.
+ */
+public class BlockSourceIndex {
+
+    private static final int SECTION_SHIFT = 4;
+    private static final IndexedSource[] EMPTY = new IndexedSource[0];
+
+    private final SourceGrid grid;
+    private final RadiationFieldCache fieldCache;
+    private final Runnable changeListener;
+    private final Map<UUID, Map<Long, Map<Integer, IndexedSource[]>>> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * @param grid The grid to register the blocks in
+     * @param fieldCache The cache to invalidate when blocks change
+     * @param changeListener Called after every change, e.g. to bump the source version
+     */
+    public BlockSourceIndex(SourceGrid grid, RadiationFieldCache fieldCache, Runnable changeListener) {
+        this.grid = grid;
+        this.fieldCache = fieldCache;
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Replace all radioactive blocks of a chunk, e.g. with the result of a scan
+     *
+     * @param worldId The world
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     * @param blocks The radioactive blocks of the chunk
+     */
+    public synchronized void setChunk(UUID worldId, int chunkX, int chunkZ, List<IndexedSource> blocks) {
+        Map<Integer, List<IndexedSource>> bySection = new HashMap<>();
+        for (IndexedSource block : blocks) {
+            bySection.computeIfAbsent((int) Math.floor(block.getY()) >> SECTION_SHIFT, y -> new ArrayList<>()).add(block);
+        }
+
+        Map<Integer, IndexedSource[]> sections = new HashMap<>();
+        for (Map.Entry<Integer, List<IndexedSource>> entry : bySection.entrySet()) {
+            sections.put(entry.getKey(), entry.getValue().toArray(EMPTY));
+        }
+
+        Map<Integer, IndexedSource[]> previous = chunks(worldId).remove(chunkKey(chunkX, chunkZ));
+        if (!sections.isEmpty()) {
+            chunks(worldId).put(chunkKey(chunkX, chunkZ), sections);
+        }
+        replace(worldId, flatten(previous), blocks);
+    }
+
+    /**
+     * Update a single block after it was placed, broken or destroyed
+     *
+     * @param worldId The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @param type The radiation of the block's new material, or null if it is not radioactive
+     */
+    public synchronized void setBlock(UUID worldId, int x, int y, int z, Settings.RadioactiveBlock type) {
+        long key = chunkKey(x >> SECTION_SHIFT, z >> SECTION_SHIFT);
+        int sectionY = y >> SECTION_SHIFT;
+        Map<Integer, IndexedSource[]> sections = chunks(worldId).get(key);
+        IndexedSource[] section = sections != null ? sections.getOrDefault(sectionY, EMPTY) : EMPTY;
+
+        double centerX = x + 0.5;
+        double centerY = y + 0.5;
+        double centerZ = z + 0.5;
+        int index = -1;
+        for (int i = 0; i < section.length; i++) {
+            if (section[i].getX() == centerX && section[i].getY() == centerY && section[i].getZ() == centerZ) {
+                index = i;
+                break;
+            }
+        }
+
+        if (index < 0 && type == null) {
+            return;
+        }
+
+        List<IndexedSource> removed = index >= 0 ? Collections.singletonList(section[index]) : Collections.emptyList();
+        List<IndexedSource> added = type != null ? Collections.singletonList(IndexedSource.ofBlock(x, y, z, type)) : Collections.emptyList();
+
+        IndexedSource[] updated;
+        if (index >= 0) {
+            updated = section.clone();
+            if (type != null) {
+                updated[index] = added.get(0);
+            } else {
+                updated[index] = updated[updated.length - 1];
+                updated = Arrays.copyOf(updated, updated.length - 1);
+            }
+        } else {
+            updated = Arrays.copyOf(section, section.length + 1);
+            updated[section.length] = added.get(0);
+        }
+
+        if (sections == null) {
+            sections = new HashMap<>();
+            chunks(worldId).put(key, sections);
+        }
+        if (updated.length == 0) {
+            sections.remove(sectionY);
+            if (sections.isEmpty()) {
+                chunks(worldId).remove(key);
+            }
+        } else {
+            sections.put(sectionY, updated);
+        }
+
+        replace(worldId, removed, added);
+    }
+
+    /**
+     * Drop the blocks of an unloaded chunk
+     *
+     * @param worldId The world
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     */
+    public synchronized void removeChunk(UUID worldId, int chunkX, int chunkZ) {
+        Map<Long, Map<Integer, IndexedSource[]>> chunks = worlds.get(worldId);
+        if (chunks == null) {
+            return;
+        }
+
+        Map<Integer, IndexedSource[]> previous = chunks.remove(chunkKey(chunkX, chunkZ));
+        if (previous != null) {
+            replace(worldId, flatten(previous), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Drop the blocks of an unloaded world
+     *
+     * @param worldId The world
+     */
+    public synchronized void removeWorld(UUID worldId) {
+        Map<Long, Map<Integer, IndexedSource[]>> chunks = worlds.remove(worldId);
+        if (chunks == null) {
+            return;
+        }
+
+        List<IndexedSource> removed = new ArrayList<>();
+        for (Map<Integer, IndexedSource[]> sections : chunks.values()) {
+            removed.addAll(flatten(sections));
+        }
+        replace(worldId, removed, Collections.emptyList());
+    }
+
+    /**
+     * Forget all blocks. Only call together with {@link SourceGrid#clear()}.
+     */
+    public synchronized void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * Get the number of indexed blocks of a chunk
+     *
+     * @param worldId The world
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     * @return The number of radioactive blocks
+     */
+    public synchronized int getBlockCount(UUID worldId, int chunkX, int chunkZ) {
+        Map<Long, Map<Integer, IndexedSource[]>> chunks = worlds.get(worldId);
+        Map<Integer, IndexedSource[]> sections = chunks != null ? chunks.get(chunkKey(chunkX, chunkZ)) : null;
+        return sections != null ? flatten(sections).size() : 0;
+    }
+
+    /**
+     * Swap entries in the grid, then drop the cached field around them. The
+     * grid changes first, so a level computed concurrently can not be cached
+     * from the old entries.
+     */
+    private void replace(UUID worldId, List<IndexedSource> removed, List<IndexedSource> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+
+        grid.removeAll(worldId, removed);
+        grid.addAll(worldId, added);
+        invalidate(worldId, removed);
+        invalidate(worldId, added);
+        changeListener.run();
+    }
+
+    private void invalidate(UUID worldId, List<IndexedSource> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (IndexedSource entry : entries) {
+            int radius = entry.getRadius();
+            minX = Math.min(minX, entry.getX() - radius);
+            minY = Math.min(minY, entry.getY() - radius);
+            minZ = Math.min(minZ, entry.getZ() - radius);
+            maxX = Math.max(maxX, entry.getX() + radius);
+            maxY = Math.max(maxY, entry.getY() + radius);
+            maxZ = Math.max(maxZ, entry.getZ() + radius);
+        }
+
+        fieldCache.invalidate(new SourceGrid.Bounds(worldId,
+                (int) Math.floor(minX), (int) Math.floor(minY), (int) Math.floor(minZ),
+                (int) Math.floor(maxX), (int) Math.floor(maxY), (int) Math.floor(maxZ)));
+    }
+
+    private Map<Long, Map<Integer, IndexedSource[]>> chunks(UUID worldId) {
+        return worlds.computeIfAbsent(worldId, id -> new ConcurrentHashMap<>());
+    }
+
+    private static List<IndexedSource> flatten(Map<Integer, IndexedSource[]> sections) {
+        if (sections == null) {
+            return Collections.emptyList();
+        }
+
+        List<IndexedSource> entries = new ArrayList<>();
+        for (IndexedSource[] section : sections.values()) {
+            entries.addAll(Arrays.asList(section));
+        }
+        return entries;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ssquadteam.fallout.spatial;
+
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.models.FalloffCurve;
+import com.ssquadteam.fallout.models.RadiationSource;
+
+/**
+ * Immutable copy of the parameters of a radiation source, taken when the
+ * source is indexed. Evaluation only reads these copies, so it can run off
+ * the main thread while the source itself is being edited.
+ * <p>
+ * Radioactive blocks are indexed the same way, without a source.
+ */
+public final class IndexedSource {
+
+    private final RadiationSource source;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final int radius;
+    private final double radiusSquared;
+    private final int strength;
+    private final int power;
+    private final FalloffCurve falloff;
+
+    IndexedSource(RadiationSource source) {
+        this(source, source.getLocation().getX(), source.getLocation().getY(), source.getLocation().getZ(),
+                source.getRadius(), source.getStrength(), source.getPower(), source.getFalloff());
+    }
+
+    private IndexedSource(RadiationSource source, double x, double y, double z, int radius, int strength, int power, FalloffCurve falloff) {
+        this.source = source;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.radius = radius;
+        this.radiusSquared = (double) radius * radius;
+        this.strength = strength;
+        this.power = power;
+        this.falloff = falloff;
+    }
+
+    /**
+     * Create the entry of a radioactive block, centered in the block
+     *
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @param type The radiation the block's material emits
+     * @return The entry
+     */
+    public static IndexedSource ofBlock(int x, int y, int z, Settings.RadioactiveBlock type) {
+        return new IndexedSource(null, x + 0.5, y + 0.5, z + 0.5,
+                type.getRadius(), type.getStrength(), type.getPower(), type.getFalloff());
+    }
+
+    /**
+     * @return The source this copy was taken from, or null for a radioactive block
+     */
+    public RadiationSource getSource() {
+        return source;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public double getRadiusSquared() {
+        return radiusSquared;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public int getPower() {
+        return power;
+    }
+
+    public FalloffCurve getFalloff() {
+        return falloff;
+    }
+}
@@ -0,0 +1,219 @@
+package com.ssquadteam.fallout.spatial;
+
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Lazily filled cache of the radiation field at block resolution.
+ * Levels are stored per 16x16x16 chunk section and kept per world in an LRU
+ * map, so a cached query costs one hash lookup and an array read.
+ * <p>
+ * All methods are synchronized so levels can be computed off the main
+ * thread. Every change to the sources advances an epoch; a level computed
+ * before such a change is rejected by
+ * {@link #put(World, int, int, int, int, long)} instead of being cached with
+ * stale sources. Unloading chunks and worlds only drops sections.
+ */
+public class RadiationFieldCache {
+
+    /**
+     * Marker for blocks whose level has not been computed yet
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final int SECTION_SHIFT = 4;
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private final int maxSectionsPerWorld;
+    private final Map<UUID, SectionMap> worlds = new HashMap<>();
+    private long epoch;
+
+    /**
+     * @param maxSectionsPerWorld How many sections to keep per world before evicting the least recently used
+     */
+    public RadiationFieldCache(int maxSectionsPerWorld) {
+        this.maxSectionsPerWorld = Math.max(1, maxSectionsPerWorld);
+    }
+
+    /**
+     * Get the cached level of a block
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @return The cached level, or {@link #UNKNOWN} if it has not been computed
+     */
+    public synchronized int get(World world, int x, int y, int z) {
+        SectionMap sections = worlds.get(world.getUID());
+        if (sections == null) {
+            return UNKNOWN;
+        }
+
+        byte[] levels = sections.get(sectionKey(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT));
+        return levels != null ? levels[indexInSection(x, y, z)] : UNKNOWN;
+    }
+
+    /**
+     * Get the current epoch. Read it before looking at the sources so the
+     * computed level can be stored with {@link #put(World, int, int, int, int, long)}.
+     *
+     * @return The current epoch
+     */
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Store the computed level of a block, unless the cache was invalidated
+     * after the level was computed
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @param level The radiation level (0-100)
+     * @param computedAt The epoch read before the level was computed
+     * @return true if the level was stored
+     */
+    public synchronized boolean put(World world, int x, int y, int z, int level, long computedAt) {
+        if (computedAt != epoch) {
+            return false;
+        }
+
+        SectionMap sections = worlds.computeIfAbsent(world.getUID(), id -> new SectionMap(maxSectionsPerWorld));
+        long key = sectionKey(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT);
+
+        byte[] levels = sections.get(key);
+        if (levels == null) {
+            levels = new byte[SECTION_VOLUME];
+            Arrays.fill(levels, (byte) UNKNOWN);
+            sections.put(key, levels);
+        }
+
+        levels[indexInSection(x, y, z)] = (byte) level;
+        return true;
+    }
+
+    /**
+     * Drop every cached section that intersects a block region
+     *
+     * @param bounds The affected region
+     */
+    public synchronized void invalidate(SourceGrid.Bounds bounds) {
+        epoch++;
+        SectionMap sections = worlds.get(bounds.getWorldId());
+        if (sections == null) {
+            return;
+        }
+
+        int minSectionX = bounds.getMinX() >> SECTION_SHIFT;
+        int minSectionY = bounds.getMinY() >> SECTION_SHIFT;
+        int minSectionZ = bounds.getMinZ() >> SECTION_SHIFT;
+        int maxSectionX = bounds.getMaxX() >> SECTION_SHIFT;
+        int maxSectionY = bounds.getMaxY() >> SECTION_SHIFT;
+        int maxSectionZ = bounds.getMaxZ() >> SECTION_SHIFT;
+
+        // The map is bounded, so walking it is cheaper than probing every section of a large radius
+        Iterator<Long> iterator = sections.keySet().iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.next();
+            int sectionX = sectionX(key);
+            int sectionY = sectionY(key);
+            int sectionZ = sectionZ(key);
+
+            if (sectionX >= minSectionX && sectionX <= maxSectionX
+                    && sectionY >= minSectionY && sectionY <= maxSectionY
+                    && sectionZ >= minSectionZ && sectionZ <= maxSectionZ) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop the cached sections of an unloaded chunk. Unloading changes no
+     * source, so the epoch is left alone and concurrent puts still succeed.
+     *
+     * @param world The world
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     */
+    public synchronized void invalidateChunk(World world, int chunkX, int chunkZ) {
+        SectionMap sections = worlds.get(world.getUID());
+        if (sections == null) {
+            return;
+        }
+
+        int minSectionY = world.getMinHeight() >> SECTION_SHIFT;
+        int maxSectionY = (world.getMaxHeight() - 1) >> SECTION_SHIFT;
+        for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+            sections.remove(sectionKey(chunkX, sectionY, chunkZ));
+        }
+
+        if (sections.isEmpty()) {
+            worlds.remove(world.getUID());
+        }
+    }
+
+    /**
+     * Drop all cached sections of an unloaded world. Like
+     * {@link #invalidateChunk(World, int, int)}, this leaves the epoch alone.
+     *
+     * @param world The world
+     */
+    public synchronized void invalidateWorld(World world) {
+        worlds.remove(world.getUID());
+    }
+
+    /**
+     * Drop all cached sections
+     */
+    public synchronized void clear() {
+        epoch++;
+        worlds.clear();
+    }
+
+    private static int indexInSection(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    // 22 bits for x and z sections (covers the 30 million block world border), 20 bits for y
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((sectionX & 0x3FFFFFL) << 42) | ((sectionZ & 0x3FFFFFL) << 20) | (sectionY & 0xFFFFFL);
+    }
+
+    private static int sectionX(long key) {
+        return (int) (key >> 42);
+    }
+
+    private static int sectionZ(long key) {
+        return (int) (key << 22 >> 42);
+    }
+
+    private static int sectionY(long key) {
+        return (int) (key << 44 >> 44);
+    }
+
+    /**
+     * Access-ordered map that evicts the least recently used section
+     */
+    private static final class SectionMap extends LinkedHashMap<Long, byte[]> {
+        private final int maxSections;
+
+        private SectionMap(int maxSections) {
+            super(16, 0.75f, true);
+            this.maxSections = maxSections;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > maxSections;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.ssquadteam.fallout.spatial;
+
+import com.ssquadteam.fallout.models.FalloffCurve;
+import com.ssquadteam.fallout.models.RadiationSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable struct-of-arrays copy of the sources of one grid cell. The
+ * parameters every evaluation reads are laid out in parallel arrays, so a
+ * cell is scanned in one linear pass, and with the Vector API several
+ * sources are range checked per instruction. Cells are rebuilt on every change, like the arrays they
+ * replace.
+ * <p>
+ * Only active sources are indexed, so there is no active flag to test.
+ */
+public final class SourceBlock {
+
+    /**
+     * The block of a cell without sources
+     */
+    public static final SourceBlock EMPTY = new SourceBlock(new IndexedSource[0]);
+
+    // Cells with fewer sources than this are not worth setting up vectors for
+    private static final int VECTOR_THRESHOLD = 8;
+
+    private final IndexedSource[] sources;
+    final double[] x;
+    final double[] y;
+    final double[] z;
+    final double[] radiusSquared;
+    private final double[] strength;
+    private final double[] powerFactor;
+    private final FalloffCurve[] falloff;
+
+    private SourceBlock(IndexedSource[] sources) {
+        int size = sources.length;
+        this.sources = sources;
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.radiusSquared = new double[size];
+        this.strength = new double[size];
+        this.powerFactor = new double[size];
+        this.falloff = new FalloffCurve[size];
+
+        for (int i = 0; i < size; i++) {
+            IndexedSource source = sources[i];
+            x[i] = source.getX();
+            y[i] = source.getY();
+            z[i] = source.getZ();
+            radiusSquared[i] = source.getRadiusSquared();
+            strength[i] = source.getStrength();
+            powerFactor[i] = source.getPower() / 5.0;
+            falloff[i] = source.getFalloff();
+        }
+    }
+
+    /**
+     * @return true if large cells are evaluated with the Vector API
+     */
+    public static boolean isVectorized() {
+        return VectorSupport.AVAILABLE;
+    }
+
+    /**
+     * @return The number of sources in the cell
+     */
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * Get the source at an index. Used for lookups that need the sources
+     * themselves; evaluation reads the arrays.
+     *
+     * @param index The index
+     * @return The indexed source
+     */
+    public IndexedSource getSource(int index) {
+        return sources[index];
+    }
+
+    /**
+     * Create a copy of this block with a source added
+     *
+     * @param source The source to add
+     * @return The new block
+     */
+    SourceBlock with(IndexedSource source) {
+        IndexedSource[] copy = new IndexedSource[sources.length + 1];
+        System.arraycopy(sources, 0, copy, 0, sources.length);
+        copy[sources.length] = source;
+        return new SourceBlock(copy);
+    }
+
+    /**
+     * Create a copy of this block without a source
+     *
+     * @param source The source to remove
+     * @return The new block, or this block if it does not hold the source
+     */
+    SourceBlock without(RadiationSource source) {
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i].getSource() == source) {
+                IndexedSource[] copy = new IndexedSource[sources.length - 1];
+                System.arraycopy(sources, 0, copy, 0, i);
+                System.arraycopy(sources, i + 1, copy, i, sources.length - i - 1);
+                return copy.length == 0 ? EMPTY : new SourceBlock(copy);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Create a copy of this block with sources added
+     *
+     * @param added The sources to add
+     * @return The new block
+     */
+    SourceBlock withAll(List<IndexedSource> added) {
+        IndexedSource[] copy = Arrays.copyOf(sources, sources.length + added.size());
+        for (int i = 0; i < added.size(); i++) {
+            copy[sources.length + i] = added.get(i);
+        }
+        return new SourceBlock(copy);
+    }
+
+    /**
+     * Create a copy of this block without some sources
+     *
+     * @param removed The sources to remove, compared by identity
+     * @return The new block
+     */
+    SourceBlock withoutAll(Set<IndexedSource> removed) {
+        IndexedSource[] copy = new IndexedSource[sources.length];
+        int size = 0;
+        for (IndexedSource source : sources) {
+            if (!removed.contains(source)) {
+                copy[size++] = source;
+            }
+        }
+
+        if (size == sources.length) {
+            return this;
+        }
+        return size == 0 ? EMPTY : new SourceBlock(Arrays.copyOf(copy, size));
+    }
+
+    /**
+     * Get the highest radiation level any source of the cell emits at a
+     * position, using the Vector API when it is available and the cell is
+     * large enough. Does not allocate on the scalar path.
+     *
+     * @param px The x coordinate
+     * @param py The y coordinate
+     * @param pz The z coordinate
+     * @return The radiation level (0-100)
+     */
+    public int maxLevelAt(double px, double py, double pz) {
+        if (sources.length >= VECTOR_THRESHOLD && VectorSupport.AVAILABLE) {
+            return VectorSourceKernel.maxLevelAt(this, px, py, pz);
+        }
+        return maxLevelAt(0, px, py, pz, 0);
+    }
+
+    /**
+     * Scalar evaluation of the sources from an index on
+     *
+     * @param from The first source to evaluate
+     * @param px The x coordinate
+     * @param py The y coordinate
+     * @param pz The z coordinate
+     * @param maxLevel The highest level found so far
+     * @return The highest level of maxLevel and the evaluated sources
+     */
+    int maxLevelAt(int from, double px, double py, double pz, int maxLevel) {
+        for (int i = from; i < sources.length && maxLevel < RadiationSource.MAX_LEVEL; i++) {
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            if (distanceSquared <= radiusSquared[i]) {
+                maxLevel = Math.max(maxLevel, levelAt(i, distanceSquared));
+            }
+        }
+
+        return Math.min(RadiationSource.MAX_LEVEL, maxLevel);
+    }
+
+    /**
+     * Get the level a single source of the cell emits at a position
+     *
+     * @param index The index of the source
+     * @param px The x coordinate
+     * @param py The y coordinate
+     * @param pz The z coordinate
+     * @return The radiation level (0-100), 0 outside its radius
+     */
+    public int levelAt(int index, double px, double py, double pz) {
+        double dx = x[index] - px;
+        double dy = y[index] - py;
+        double dz = z[index] - pz;
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+        return distanceSquared <= radiusSquared[index] ? Math.min(RadiationSource.MAX_LEVEL, levelAt(index, distanceSquared)) : 0;
+    }
+
+    /**
+     * Get the level a source emits at a distance within its radius. Same
+     * steps as RadiationSource.getRadiationLevel, including both
+     * truncations, but without the clamp.
+     *
+     * @param index The index of the source
+     * @param distanceSquared The squared distance from its center
+     * @return The radiation level
+     */
+    int levelAt(int index, double distanceSquared) {
+        int level = (int) (strength[index] * falloff[index].factor(distanceSquared / radiusSquared[index]));
+        return (int) (level * powerFactor[index]);
+    }
+}
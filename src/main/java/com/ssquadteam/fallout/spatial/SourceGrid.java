@@ -0,0 +1,315 @@
+package com.ssquadteam.fallout.spatial;
+
+import com.ssquadteam.fallout.models.RadiationSource;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of radiation sources keyed by world and chunk-sized cell.
+ * Each active source is registered in every cell its radius covers, so a
+ * lookup only has to look at the sources of a single cell.
+ * <p>
+ * Cells hold immutable {@link SourceBlock}s of {@link IndexedSource} copies
+ * that are replaced on every change, so lookups are safe from any thread
+ * while writers on the main thread edit the index.
+ */
+public class SourceGrid {
+
+    /**
+     * Cells are 16x16 block columns, matching Minecraft chunks
+     */
+    public static final int CELL_SHIFT = 4;
+
+    private final Map<UUID, Map<Long, SourceBlock>> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, Bounds> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Register a source in every cell its radius covers. Inactive sources,
+     * sources in unloaded worlds and shaped zones, which live in the
+     * {@link ZoneTree}, are not indexed.
+     *
+     * @param source The source to add
+     */
+    public synchronized void add(RadiationSource source) {
+        if (!source.isActive() || source.getShape() != null || registrations.containsKey(source.getId())) {
+            return;
+        }
+
+        Location location = source.getLocation();
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+
+        int radius = source.getRadius();
+        Bounds bounds = new Bounds(
+                world.getUID(),
+                (int) Math.floor(location.getX() - radius),
+                (int) Math.floor(location.getY() - radius),
+                (int) Math.floor(location.getZ() - radius),
+                (int) Math.floor(location.getX() + radius),
+                (int) Math.floor(location.getY() + radius),
+                (int) Math.floor(location.getZ() + radius)
+        );
+
+        IndexedSource indexed = new IndexedSource(source);
+        Map<Long, SourceBlock> cells = worlds.computeIfAbsent(bounds.worldId, id -> new ConcurrentHashMap<>());
+        for (int cx = bounds.minX >> CELL_SHIFT; cx <= bounds.maxX >> CELL_SHIFT; cx++) {
+            for (int cz = bounds.minZ >> CELL_SHIFT; cz <= bounds.maxZ >> CELL_SHIFT; cz++) {
+                long key = cellKey(cx, cz);
+                cells.put(key, cells.getOrDefault(key, SourceBlock.EMPTY).with(indexed));
+            }
+        }
+
+        registrations.put(source.getId(), bounds);
+    }
+
+    /**
+     * Remove a source from every cell it was registered in
+     *
+     * @param source The source to remove
+     */
+    public synchronized void remove(RadiationSource source) {
+        Bounds bounds = registrations.remove(source.getId());
+        if (bounds == null) {
+            return;
+        }
+
+        Map<Long, SourceBlock> cells = worlds.get(bounds.worldId);
+        if (cells == null) {
+            return;
+        }
+
+        for (int cx = bounds.minX >> CELL_SHIFT; cx <= bounds.maxX >> CELL_SHIFT; cx++) {
+            for (int cz = bounds.minZ >> CELL_SHIFT; cz <= bounds.maxZ >> CELL_SHIFT; cz++) {
+                long key = cellKey(cx, cz);
+                SourceBlock cell = cells.get(key);
+                if (cell == null) {
+                    continue;
+                }
+
+                SourceBlock remaining = cell.without(source);
+                if (remaining.size() == 0) {
+                    cells.remove(key);
+                } else if (remaining != cell) {
+                    cells.put(key, remaining);
+                }
+            }
+        }
+
+        if (cells.isEmpty()) {
+            worlds.remove(bounds.worldId);
+        }
+    }
+
+    /**
+     * Register radioactive block entries in every cell their radius covers,
+     * rebuilding each affected cell once
+     *
+     * @param worldId The world
+     * @param added The entries to add
+     */
+    public synchronized void addAll(UUID worldId, List<IndexedSource> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+
+        Map<Long, SourceBlock> cells = worlds.computeIfAbsent(worldId, id -> new ConcurrentHashMap<>());
+        for (Map.Entry<Long, List<IndexedSource>> entry : groupByCell(added).entrySet()) {
+            cells.put(entry.getKey(), cells.getOrDefault(entry.getKey(), SourceBlock.EMPTY).withAll(entry.getValue()));
+        }
+    }
+
+    /**
+     * Remove radioactive block entries from every cell they were registered in
+     *
+     * @param worldId The world
+     * @param removed The entries to remove
+     */
+    public synchronized void removeAll(UUID worldId, List<IndexedSource> removed) {
+        Map<Long, SourceBlock> cells = worlds.get(worldId);
+        if (cells == null || removed.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<Long, List<IndexedSource>> entry : groupByCell(removed).entrySet()) {
+            SourceBlock cell = cells.get(entry.getKey());
+            if (cell == null) {
+                continue;
+            }
+
+            SourceBlock remaining = cell.withoutAll(new HashSet<>(entry.getValue()));
+            if (remaining.size() == 0) {
+                cells.remove(entry.getKey());
+            } else if (remaining != cell) {
+                cells.put(entry.getKey(), remaining);
+            }
+        }
+
+        if (cells.isEmpty()) {
+            worlds.remove(worldId);
+        }
+    }
+
+    private static Map<Long, List<IndexedSource>> groupByCell(List<IndexedSource> entries) {
+        Map<Long, List<IndexedSource>> byCell = new HashMap<>();
+        for (IndexedSource entry : entries) {
+            int radius = entry.getRadius();
+            int minCellX = (int) Math.floor(entry.getX() - radius) >> CELL_SHIFT;
+            int maxCellX = (int) Math.floor(entry.getX() + radius) >> CELL_SHIFT;
+            int minCellZ = (int) Math.floor(entry.getZ() - radius) >> CELL_SHIFT;
+            int maxCellZ = (int) Math.floor(entry.getZ() + radius) >> CELL_SHIFT;
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                    byCell.computeIfAbsent(cellKey(cx, cz), key -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        return byCell;
+    }
+
+    /**
+     * Re-register a source after its location, radius or active state changed
+     *
+     * @param source The source to update
+     */
+    public synchronized void update(RadiationSource source) {
+        remove(source);
+        add(source);
+    }
+
+    /**
+     * Get the block region a source is currently registered for
+     *
+     * @param source The source
+     * @return The registered bounds, or null if the source is not indexed
+     */
+    public Bounds getBounds(RadiationSource source) {
+        return registrations.get(source.getId());
+    }
+
+    /**
+     * Remove all sources from the index
+     */
+    public synchronized void clear() {
+        worlds.clear();
+        registrations.clear();
+    }
+
+    /**
+     * Get the sources whose radius may cover a position
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param z The block z coordinate
+     * @return The candidate sources of the cell containing the position
+     */
+    public SourceBlock getCandidates(World world, int x, int z) {
+        Map<Long, SourceBlock> cells = worlds.get(world.getUID());
+        if (cells == null) {
+            return SourceBlock.EMPTY;
+        }
+
+        SourceBlock cell = cells.get(cellKey(x >> CELL_SHIFT, z >> CELL_SHIFT));
+        return cell != null ? cell : SourceBlock.EMPTY;
+    }
+
+    /**
+     * Collect the sources whose reach overlaps a horizontal block region.
+     * Radioactive blocks are left out.
+     *
+     * @param world The world
+     * @param minX The lowest x coordinate of the region
+     * @param minZ The lowest z coordinate of the region
+     * @param maxX The highest x coordinate of the region
+     * @param maxZ The highest z coordinate of the region
+     * @param result The set to add the sources to
+     */
+    public void collectNear(World world, int minX, int minZ, int maxX, int maxZ, Set<RadiationSource> result) {
+        Map<Long, SourceBlock> cells = worlds.get(world.getUID());
+        if (cells == null) {
+            return;
+        }
+
+        for (int cellX = minX >> CELL_SHIFT; cellX <= maxX >> CELL_SHIFT; cellX++) {
+            for (int cellZ = minZ >> CELL_SHIFT; cellZ <= maxZ >> CELL_SHIFT; cellZ++) {
+                SourceBlock cell = cells.get(cellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+
+                for (int i = 0; i < cell.size(); i++) {
+                    RadiationSource source = cell.getSource(i).getSource();
+                    if (source != null) {
+                        result.add(source);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The block region a source was registered for, kept so it can be removed
+     * even after its location or radius has changed
+     */
+    public static final class Bounds {
+        private final UUID worldId;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+
+        Bounds(UUID worldId, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            this.worldId = worldId;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        public UUID getWorldId() {
+            return worldId;
+        }
+
+        public int getMinX() {
+            return minX;
+        }
+
+        public int getMinY() {
+            return minY;
+        }
+
+        public int getMinZ() {
+            return minZ;
+        }
+
+        public int getMaxX() {
+            return maxX;
+        }
+
+        public int getMaxY() {
+            return maxY;
+        }
+
+        public int getMaxZ() {
+            return maxZ;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ssquadteam.fallout.spatial;
+
+import com.ssquadteam.fallout.models.RadiationSource;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Range checks the sources of a {@link SourceBlock} several at a time with
+ * the Vector API. Only loaded when {@link VectorSupport#AVAILABLE} is true.
+ * <p>
+ * Most candidates of a cell are out of range, so only the distance test is
+ * vectorized. The few sources in range are evaluated with the scalar
+ * falloff lookup, which gives exactly the same result as the scalar loop.
+ */
+final class VectorSourceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorSourceKernel() {
+    }
+
+    static int maxLevelAt(SourceBlock block, double px, double py, double pz) {
+        int size = block.size();
+        int bound = SPECIES.loopBound(size);
+        int maxLevel = 0;
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, block.x, i).sub(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, block.y, i).sub(py);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, block.z, i).sub(pz);
+            DoubleVector distanceSquared = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+
+            long inside = distanceSquared.compare(VectorOperators.LE,
+                    DoubleVector.fromArray(SPECIES, block.radiusSquared, i)).toLong();
+            while (inside != 0) {
+                int lane = Long.numberOfTrailingZeros(inside);
+                inside &= inside - 1;
+
+                maxLevel = Math.max(maxLevel, block.levelAt(i + lane, distanceSquared.lane(lane)));
+                if (maxLevel >= RadiationSource.MAX_LEVEL) {
+                    return RadiationSource.MAX_LEVEL;
+                }
+            }
+        }
+
+        // The remaining sources do not fill a whole vector
+        return block.maxLevelAt(i, px, py, pz, maxLevel);
+    }
+}
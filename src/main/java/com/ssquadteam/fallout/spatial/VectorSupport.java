@@ -0,0 +1,30 @@
+package com.ssquadteam.fallout.spatial;
+
+/**
+ * Detects once whether the incubating Vector API can be used. The module is
+ * only resolved when the server is started with
+ * {@code --add-modules jdk.incubator.vector}; without it every evaluation
+ * stays on the scalar path and nothing references the vector classes.
+ */
+final class VectorSupport {
+
+    static final boolean AVAILABLE = detect();
+
+    private VectorSupport() {
+    }
+
+    private static boolean detect() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+
+        try {
+            // Initializing the kernel also checks that the preferred species is usable
+            Class.forName(VectorSupport.class.getPackageName() + ".VectorSourceKernel", true,
+                    VectorSupport.class.getClassLoader());
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+}
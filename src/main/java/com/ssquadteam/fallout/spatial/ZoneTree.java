@@ -0,0 +1,402 @@
+package com.ssquadteam.fallout.spatial;
+
+import com.ssquadteam.fallout.models.FalloffCurve;
+import com.ssquadteam.fallout.models.RadiationSource;
+import com.ssquadteam.fallout.models.ZoneShape;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounding volume hierarchy of the shaped radiation zones of each world.
+ * Shaped zones are large and few, so instead of registering them in every
+ * grid cell they cover, they are kept in a binary tree of boxes and a
+ * lookup only descends into the boxes that contain the position.
+ * <p>
+ * The tree of a world is immutable and rebuilt from scratch whenever one
+ * of its zones changes, so lookups are safe from any thread while writers
+ * on the main thread edit the index.
+ */
+public class ZoneTree {
+
+    // Leaves hold up to this many zones
+    private static final int LEAF_SIZE = 4;
+
+    private final Map<UUID, Node> roots = new ConcurrentHashMap<>();
+    private final Map<UUID, Map<UUID, IndexedZone>> zones = new ConcurrentHashMap<>();
+    private final Map<UUID, SourceGrid.Bounds> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Add a shaped zone to the tree of its world.
+     * Inactive zones and zones in unloaded worlds are not indexed.
+     *
+     * @param source The zone to add
+     */
+    public synchronized void add(RadiationSource source) {
+        UUID worldId = index(source);
+        if (worldId != null) {
+            rebuild(worldId);
+        }
+    }
+
+    /**
+     * Add many zones at once, building the tree of each affected world only
+     * once instead of once per zone
+     *
+     * @param sources The zones to add
+     */
+    public synchronized void addAll(Collection<RadiationSource> sources) {
+        Set<UUID> changed = new HashSet<>();
+        for (RadiationSource source : sources) {
+            UUID worldId = index(source);
+            if (worldId != null) {
+                changed.add(worldId);
+            }
+        }
+
+        for (UUID worldId : changed) {
+            rebuild(worldId);
+        }
+    }
+
+    /**
+     * Register a zone without rebuilding the tree
+     *
+     * @return The id of the zone's world, or null if the zone is not indexed
+     */
+    private UUID index(RadiationSource source) {
+        ZoneShape shape = source.getShape();
+        if (shape == null || !source.isActive() || registrations.containsKey(source.getId())) {
+            return null;
+        }
+
+        World world = source.getLocation().getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        IndexedZone zone = new IndexedZone(source);
+        UUID worldId = world.getUID();
+        Map<UUID, IndexedZone> worldZones = zones.computeIfAbsent(worldId, id -> new ConcurrentHashMap<>());
+        worldZones.put(source.getId(), zone);
+        registrations.put(source.getId(), new SourceGrid.Bounds(worldId,
+                (int) Math.floor(zone.minX), (int) Math.floor(zone.minY), (int) Math.floor(zone.minZ),
+                (int) Math.floor(zone.maxX), (int) Math.floor(zone.maxY), (int) Math.floor(zone.maxZ)));
+        return worldId;
+    }
+
+    /**
+     * Remove a zone from the tree of its world
+     *
+     * @param source The zone to remove
+     */
+    public synchronized void remove(RadiationSource source) {
+        SourceGrid.Bounds bounds = registrations.remove(source.getId());
+        if (bounds == null) {
+            return;
+        }
+
+        Map<UUID, IndexedZone> worldZones = zones.get(bounds.getWorldId());
+        if (worldZones != null) {
+            worldZones.remove(source.getId());
+            if (worldZones.isEmpty()) {
+                zones.remove(bounds.getWorldId());
+            }
+        }
+        rebuild(bounds.getWorldId());
+    }
+
+    /**
+     * Re-index a zone after it changed
+     *
+     * @param source The zone to update
+     */
+    public synchronized void update(RadiationSource source) {
+        remove(source);
+        add(source);
+    }
+
+    /**
+     * Get the block region a zone affects, including its falloff
+     *
+     * @param source The zone
+     * @return The registered bounds, or null if the zone is not indexed
+     */
+    public SourceGrid.Bounds getBounds(RadiationSource source) {
+        return registrations.get(source.getId());
+    }
+
+    /**
+     * Remove all zones from the tree
+     */
+    public synchronized void clear() {
+        roots.clear();
+        zones.clear();
+        registrations.clear();
+    }
+
+    /**
+     * Get the highest radiation level any zone emits at a position
+     *
+     * @param world The world
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The radiation level (0-100)
+     */
+    public int maxLevelAt(World world, double x, double y, double z) {
+        Node root = roots.get(world.getUID());
+        return root != null ? root.maxLevelAt(x, y, z, 0) : 0;
+    }
+
+    /**
+     * Collect the zones whose radiation reaches a position
+     *
+     * @param world The world
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param result The list to add the zones to
+     */
+    public void collect(World world, double x, double y, double z, List<RadiationSource> result) {
+        Node root = roots.get(world.getUID());
+        if (root != null) {
+            root.collect(x, y, z, result);
+        }
+    }
+
+    /**
+     * Collect the zones whose reach overlaps a block region
+     *
+     * @param world The world
+     * @param minX The lowest x coordinate of the region
+     * @param minY The lowest y coordinate of the region
+     * @param minZ The lowest z coordinate of the region
+     * @param maxX The highest x coordinate of the region
+     * @param maxY The highest y coordinate of the region
+     * @param maxZ The highest z coordinate of the region
+     * @param result The collection to add the zones to
+     */
+    public void collectNear(World world, double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                            Collection<RadiationSource> result) {
+        Node root = roots.get(world.getUID());
+        if (root != null) {
+            root.collectNear(minX, minY, minZ, maxX, maxY, maxZ, result);
+        }
+    }
+
+    private void rebuild(UUID worldId) {
+        Map<UUID, IndexedZone> worldZones = zones.get(worldId);
+        if (worldZones == null || worldZones.isEmpty()) {
+            roots.remove(worldId);
+            return;
+        }
+
+        IndexedZone[] entries = worldZones.values().toArray(new IndexedZone[0]);
+        roots.put(worldId, build(entries, 0, entries.length));
+    }
+
+    /**
+     * Build a subtree by splitting the zones in half along the longest axis
+     * of their centers
+     */
+    private static Node build(IndexedZone[] entries, int from, int to) {
+        Node node = new Node(entries, from, to);
+        if (to - from <= LEAF_SIZE) {
+            node.leaf = Arrays.copyOfRange(entries, from, to);
+            return node;
+        }
+
+        double lowX = Double.MAX_VALUE, lowY = Double.MAX_VALUE, lowZ = Double.MAX_VALUE;
+        double highX = -Double.MAX_VALUE, highY = -Double.MAX_VALUE, highZ = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            lowX = Math.min(lowX, entries[i].centerX());
+            lowY = Math.min(lowY, entries[i].centerY());
+            lowZ = Math.min(lowZ, entries[i].centerZ());
+            highX = Math.max(highX, entries[i].centerX());
+            highY = Math.max(highY, entries[i].centerY());
+            highZ = Math.max(highZ, entries[i].centerZ());
+        }
+        double spanX = highX - lowX;
+        double spanY = highY - lowY;
+        double spanZ = highZ - lowZ;
+
+        Comparator<IndexedZone> order;
+        if (spanX >= spanY && spanX >= spanZ) {
+            order = Comparator.comparingDouble(IndexedZone::centerX);
+        } else if (spanZ >= spanY) {
+            order = Comparator.comparingDouble(IndexedZone::centerZ);
+        } else {
+            order = Comparator.comparingDouble(IndexedZone::centerY);
+        }
+        Arrays.sort(entries, from, to, order);
+
+        int middle = (from + to) >>> 1;
+        node.left = build(entries, from, middle);
+        node.right = build(entries, middle, to);
+        return node;
+    }
+
+    /**
+     * A box of the tree, either with two children or with a leaf of zones
+     */
+    private static final class Node {
+        private final double minX;
+        private final double minY;
+        private final double minZ;
+        private final double maxX;
+        private final double maxY;
+        private final double maxZ;
+        private Node left;
+        private Node right;
+        private IndexedZone[] leaf;
+
+        private Node(IndexedZone[] entries, int from, int to) {
+            double lowX = Double.MAX_VALUE, lowY = Double.MAX_VALUE, lowZ = Double.MAX_VALUE;
+            double highX = -Double.MAX_VALUE, highY = -Double.MAX_VALUE, highZ = -Double.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                IndexedZone zone = entries[i];
+                lowX = Math.min(lowX, zone.minX);
+                lowY = Math.min(lowY, zone.minY);
+                lowZ = Math.min(lowZ, zone.minZ);
+                highX = Math.max(highX, zone.maxX);
+                highY = Math.max(highY, zone.maxY);
+                highZ = Math.max(highZ, zone.maxZ);
+            }
+            this.minX = lowX;
+            this.minY = lowY;
+            this.minZ = lowZ;
+            this.maxX = highX;
+            this.maxY = highY;
+            this.maxZ = highZ;
+        }
+
+        private boolean contains(double x, double y, double z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+
+        private boolean overlaps(double lowX, double lowY, double lowZ, double highX, double highY, double highZ) {
+            return lowX <= maxX && highX >= minX && lowY <= maxY && highY >= minY && lowZ <= maxZ && highZ >= minZ;
+        }
+
+        private void collectNear(double lowX, double lowY, double lowZ, double highX, double highY, double highZ,
+                                 Collection<RadiationSource> result) {
+            if (!overlaps(lowX, lowY, lowZ, highX, highY, highZ)) {
+                return;
+            }
+
+            if (leaf == null) {
+                left.collectNear(lowX, lowY, lowZ, highX, highY, highZ, result);
+                right.collectNear(lowX, lowY, lowZ, highX, highY, highZ, result);
+                return;
+            }
+
+            for (IndexedZone zone : leaf) {
+                if (lowX <= zone.maxX && highX >= zone.minX && lowY <= zone.maxY && highY >= zone.minY
+                        && lowZ <= zone.maxZ && highZ >= zone.minZ) {
+                    result.add(zone.source);
+                }
+            }
+        }
+
+        private int maxLevelAt(double x, double y, double z, int maxLevel) {
+            if (maxLevel >= RadiationSource.MAX_LEVEL || !contains(x, y, z)) {
+                return maxLevel;
+            }
+
+            if (leaf == null) {
+                return right.maxLevelAt(x, y, z, left.maxLevelAt(x, y, z, maxLevel));
+            }
+
+            for (IndexedZone zone : leaf) {
+                maxLevel = Math.max(maxLevel, zone.levelAt(x, y, z));
+            }
+            return Math.min(RadiationSource.MAX_LEVEL, maxLevel);
+        }
+
+        private void collect(double x, double y, double z, List<RadiationSource> result) {
+            if (!contains(x, y, z)) {
+                return;
+            }
+
+            if (leaf == null) {
+                left.collect(x, y, z, result);
+                right.collect(x, y, z, result);
+                return;
+            }
+
+            for (IndexedZone zone : leaf) {
+                if (zone.reaches(x, y, z)) {
+                    result.add(zone.source);
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of the parameters of a shaped zone, taken when it is
+     * indexed. The box includes the falloff around the shape.
+     */
+    private static final class IndexedZone {
+        private final RadiationSource source;
+        private final ZoneShape shape;
+        private final double radiusSquared;
+        private final int strength;
+        private final int power;
+        private final FalloffCurve falloff;
+        private final double minX;
+        private final double minY;
+        private final double minZ;
+        private final double maxX;
+        private final double maxY;
+        private final double maxZ;
+
+        private IndexedZone(RadiationSource source) {
+            this.source = source;
+            this.shape = source.getShape();
+            int radius = source.getRadius();
+            this.radiusSquared = (double) radius * radius;
+            this.strength = source.getStrength();
+            this.power = source.getPower();
+            this.falloff = source.getFalloff();
+            this.minX = shape.getMinX() - radius;
+            this.minY = shape.getMinY() - radius;
+            this.minZ = shape.getMinZ() - radius;
+            this.maxX = shape.getMaxX() + radius;
+            this.maxY = shape.getMaxY() + radius;
+            this.maxZ = shape.getMaxZ() + radius;
+        }
+
+        private double centerX() {
+            return (minX + maxX) * 0.5;
+        }
+
+        private double centerY() {
+            return (minY + maxY) * 0.5;
+        }
+
+        private double centerZ() {
+            return (minZ + maxZ) * 0.5;
+        }
+
+        private boolean reaches(double x, double y, double z) {
+            return shape.distanceSquared(x, y, z) <= radiusSquared;
+        }
+
+        private int levelAt(double x, double y, double z) {
+            double distanceSquared = shape.distanceSquared(x, y, z);
+            if (distanceSquared > radiusSquared) {
+                return 0;
+            }
+            return RadiationSource.getRadiationLevel(strength, power, falloff, distanceSquared / radiusSquared);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ssquadteam.fallout.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of JDBC connections. At most {@code size} connections are
+ * open at once; callers wait up to the timeout for a free one. Idle
+ * connections are validated before they are handed out again, and broken
+ * ones are replaced by a new connection, so the pool recovers on its own
+ * after the database restarts.
+ */
+public class ConnectionPool {
+
+    // Connections idle for longer than this are checked before reuse
+    private static final long VALIDATE_AFTER_MILLIS = 5000;
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final BlockingQueue<IdleConnection> idle;
+    private volatile boolean closed;
+
+    /**
+     * @param url The JDBC URL
+     * @param username The database user
+     * @param password The database password
+     * @param size The maximum number of open connections
+     * @param timeoutMillis How long to wait for a free connection
+     */
+    public ConnectionPool(String url, String username, String password, int size, long timeoutMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(size, true);
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Take a connection from the pool, opening a new one if no valid idle
+     * connection is left. Every borrowed connection must be given back with
+     * {@link #release(Connection, boolean)}.
+     *
+     * @return An open connection
+     * @throws SQLException If no connection is free in time or none can be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            IdleConnection entry;
+            while ((entry = idle.poll()) != null) {
+                if (isUsable(entry, now)) {
+                    return entry.connection;
+                }
+                closeQuietly(entry.connection);
+            }
+
+            return DriverManager.getConnection(url, username, password);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Give a borrowed connection back to the pool
+     *
+     * @param connection The connection
+     * @param broken true if the connection failed and must not be reused
+     */
+    public void release(Connection connection, boolean broken) {
+        if (broken || closed || !idle.offer(new IdleConnection(connection, System.currentTimeMillis()))) {
+            closeQuietly(connection);
+        }
+        permits.release();
+
+        // close() may have drained the queue while the connection was added
+        if (closed) {
+            drain();
+        }
+    }
+
+    /**
+     * Close the idle connections and refuse new borrows. Borrowed
+     * connections are closed when they are released.
+     */
+    public void close() {
+        closed = true;
+        drain();
+    }
+
+    private void drain() {
+        IdleConnection entry;
+        while ((entry = idle.poll()) != null) {
+            closeQuietly(entry.connection);
+        }
+    }
+
+    private boolean isUsable(IdleConnection entry, long now) {
+        try {
+            if (entry.connection.isClosed()) {
+                return false;
+            }
+            return now - entry.since < VALIDATE_AFTER_MILLIS || entry.connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // The connection is discarded anyway
+        }
+    }
+
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long since;
+
+        private IdleConnection(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,640 @@
+package com.ssquadteam.fallout.storage;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.models.PlayerRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Stores player radiation data as fixed-size binary records. Every save
+ * appends the changed records to a journal and syncs it once, so a save
+ * costs one sequential write no matter how many players are stored. Saves
+ * that queue up while a sync is running are written and synced together
+ * (group commit).
+ * <p>
+ * Once enough records were appended, the journal is compacted into a
+ * snapshot that holds the latest record of every player, sorted by UUID.
+ * On startup only the journal is replayed into memory; players are looked
+ * up there first and then by a binary search in the snapshot. Lookups run
+ * on their own thread and never wait for a save or compaction.
+ * A record torn by a crash fails its checksum and ends the replay.
+ * <p>
+ * Record layout (40 bytes): UUID (16), radiation level (4), Rad-X expiry
+ * (8), time the level was set (8), CRC32 of the previous 36 bytes (4).
+ */
+public class JournalPlayerStorage implements PlayerStorage {
+
+    private static final int RECORD_SIZE = 40;
+    private static final int CHECKSUMMED_SIZE = RECORD_SIZE - 4;
+
+    private static final int JOURNAL_MAGIC = 0x464A524E; // FJRN
+    private static final int SNAPSHOT_MAGIC = 0x46534E50; // FSNP
+    private static final int FORMAT_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 8;
+    private static final int SNAPSHOT_HEADER_SIZE = 12;
+
+    private static final int BUFFER_RECORDS = 1024;
+
+    private final Fallout plugin;
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final int compactAfter;
+    private final ExecutorService writer;
+    private final ExecutorService reader;
+    private final Queue<PendingSave> queue = new ConcurrentLinkedQueue<>();
+    private final CRC32 crc = new CRC32();
+
+    // Latest record of every player appended since the last compaction
+    private final Map<UUID, PlayerRecord> journaled = new ConcurrentHashMap<>();
+    private final FileChannel journal;
+    private int appended;
+    private ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 64);
+
+    /**
+     * Open the journal, replaying what it holds
+     *
+     * @param plugin The plugin
+     * @param compactAfter How many appended records trigger a compaction
+     * @throws IOException If the journal can not be opened
+     */
+    public JournalPlayerStorage(Fallout plugin, int compactAfter) throws IOException {
+        this.plugin = plugin;
+        this.compactAfter = Math.max(1, compactAfter);
+
+        Path folder = plugin.getDataFolder().toPath().resolve("journal");
+        Files.createDirectories(folder);
+        this.journalPath = folder.resolve("playerdata.journal");
+        this.snapshotPath = folder.resolve("playerdata.snapshot");
+
+        checkSnapshot();
+        this.journal = openJournal();
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fallout Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fallout Storage Reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Look up a player without taking the writer's lock. A compaction
+     * publishes the new snapshot before it empties the journaled records,
+     * so a record is always found in one of them.
+     */
+    @Override
+    public PlayerRecord load(UUID uuid) {
+        PlayerRecord record = journaled.get(uuid);
+        if (record != null) {
+            return record;
+        }
+
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            return findInSnapshot(channel, uuid);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not read player data of " + uuid + " from the snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Look players up like {@link #load(UUID)}, opening the snapshot once
+     * for the whole batch
+     */
+    @Override
+    public Set<UUID> findStored(Collection<UUID> uuids) {
+        Set<UUID> stored = new HashSet<>();
+        List<UUID> unjournaled = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (journaled.containsKey(uuid)) {
+                stored.add(uuid);
+            } else {
+                unjournaled.add(uuid);
+            }
+        }
+
+        if (unjournaled.isEmpty() || !Files.exists(snapshotPath)) {
+            return stored;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            for (UUID uuid : unjournaled) {
+                if (findInSnapshot(channel, uuid) != null) {
+                    stored.add(uuid);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not read the player data snapshot", e);
+            return null;
+        }
+        return stored;
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> loadAsync(UUID uuid) {
+        return CompletableFuture.supplyAsync(() -> load(uuid), reader);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> saveAsync(List<PlayerRecord> records) {
+        PendingSave save = new PendingSave(records);
+        queue.add(save);
+        writer.execute(this::flushQueue);
+        return save.future;
+    }
+
+    @Override
+    public synchronized List<PlayerRecord> save(List<PlayerRecord> records) {
+        if (records.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return append(records) ? new ArrayList<>() : new ArrayList<>(records);
+    }
+
+    @Override
+    public void close() {
+        reader.shutdown();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for player data to be saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            // Start the next run from a compact snapshot
+            if (appended > 0) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    plugin.getLogger().log(Level.WARNING, "Could not compact the player data journal, it will be replayed on the next start", e);
+                }
+            }
+
+            try {
+                journal.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Error closing the player data journal", e);
+            }
+        }
+    }
+
+    /**
+     * Write every queued save with a single sync. Runs on the writer thread.
+     */
+    private void flushQueue() {
+        List<PendingSave> batch = new ArrayList<>();
+        List<PlayerRecord> records = new ArrayList<>();
+        PendingSave save;
+        while ((save = queue.poll()) != null) {
+            batch.add(save);
+            records.addAll(save.records);
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        boolean written;
+        synchronized (this) {
+            written = records.isEmpty() || append(records);
+        }
+
+        for (PendingSave pending : batch) {
+            pending.future.complete(written ? new ArrayList<>() : new ArrayList<>(pending.records));
+        }
+    }
+
+    /**
+     * Append records to the journal and sync it. A failed append is cut off
+     * again, so the journal never ends in a partial batch.
+     *
+     * @param records The records to append
+     * @return true if the records are durably written
+     */
+    private boolean append(List<PlayerRecord> records) {
+        ByteBuffer out = ensureBuffer(records.size() * RECORD_SIZE);
+        for (PlayerRecord record : records) {
+            encode(out, record);
+        }
+        out.flip();
+
+        long start = -1;
+        try {
+            start = journal.size();
+            journal.position(start);
+            while (out.hasRemaining()) {
+                journal.write(out);
+            }
+            journal.force(false);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not append player data of " + records.size() + " players to the journal", e);
+            if (start >= 0) {
+                try {
+                    journal.truncate(start);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+            }
+            return false;
+        }
+
+        for (PlayerRecord record : records) {
+            journaled.put(record.getUniqueId(), record);
+        }
+        appended += records.size();
+
+        if (appended >= compactAfter) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The journal still holds everything, try again after the next append
+                plugin.getLogger().log(Level.WARNING, "Could not compact the player data journal", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merge the journaled records into a new snapshot and empty the journal.
+     * Both inputs are sorted by UUID, so the snapshot is streamed and never
+     * held in memory. If the server stops before the journal is emptied, its
+     * records are replayed over the new snapshot, which gives the same state.
+     * A damaged record in the old snapshot aborts the compaction: the journal
+     * is kept and the damaged snapshot is moved aside.
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        List<PlayerRecord> changes = new ArrayList<>(journaled.values());
+        changes.sort((a, b) -> a.getUniqueId().compareTo(b.getUniqueId()));
+
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        int count = 0;
+        boolean torn;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel in = Files.exists(snapshotPath) ? FileChannel.open(snapshotPath, StandardOpenOption.READ) : null) {
+            ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * BUFFER_RECORDS);
+            block.putInt(SNAPSHOT_MAGIC).putInt(FORMAT_VERSION).putInt(0);
+
+            RecordReader reader = in != null ? new RecordReader(in, SNAPSHOT_HEADER_SIZE) : null;
+            PlayerRecord stored = reader != null ? reader.next() : null;
+            int changeIndex = 0;
+
+            while (stored != null || changeIndex < changes.size()) {
+                PlayerRecord next;
+                if (changeIndex >= changes.size()) {
+                    next = stored;
+                    stored = reader.next();
+                } else if (stored == null) {
+                    next = changes.get(changeIndex++);
+                } else {
+                    int order = stored.getUniqueId().compareTo(changes.get(changeIndex).getUniqueId());
+                    if (order < 0) {
+                        next = stored;
+                        stored = reader.next();
+                    } else {
+                        // The journal is newer than the snapshot
+                        next = changes.get(changeIndex++);
+                        if (order == 0) {
+                            stored = reader.next();
+                        }
+                    }
+                }
+
+                if (next.isEmpty(now)) {
+                    continue;
+                }
+
+                if (block.remaining() < RECORD_SIZE) {
+                    writeFully(out, block);
+                }
+                encode(block, next);
+                count++;
+            }
+
+            // A damaged record ends the reader early, publishing now would lose every player after it
+            torn = reader != null && reader.isTorn();
+            if (!torn) {
+                writeFully(out, block);
+
+                // Fill in the record count, which allows binary searches in the snapshot
+                ByteBuffer header = ByteBuffer.allocate(4).putInt(count);
+                header.flip();
+                out.write(header, 8);
+                out.force(true);
+            }
+        }
+
+        if (torn) {
+            Files.deleteIfExists(temp);
+            setSnapshotAside();
+            throw new IOException("The player data snapshot has a damaged record, the journal was kept");
+        }
+
+        try {
+            Files.move(temp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        journal.truncate(JOURNAL_HEADER_SIZE);
+        journal.force(true);
+        journaled.clear();
+        appended = 0;
+
+        plugin.debug("Compacted the player data journal into a snapshot of " + count + " players");
+    }
+
+    /**
+     * Binary search the sorted snapshot for a player's record
+     */
+    private PlayerRecord findInSnapshot(FileChannel channel, UUID uuid) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.remaining() < SNAPSHOT_HEADER_SIZE) {
+            return null;
+        }
+
+        int count = header.getInt(8);
+        ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE);
+        CRC32 checksum = new CRC32();
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            block.clear();
+            if (readFully(channel, block, SNAPSHOT_HEADER_SIZE + (long) middle * RECORD_SIZE) < RECORD_SIZE) {
+                return null;
+            }
+            block.flip();
+
+            PlayerRecord record = decode(block, checksum);
+            if (record == null) {
+                plugin.getLogger().warning("The player data snapshot has a damaged record at index " + middle);
+                return null;
+            }
+
+            int order = record.getUniqueId().compareTo(uuid);
+            if (order == 0) {
+                return record;
+            }
+            if (order < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Check the snapshot header, setting a damaged snapshot aside
+     */
+    private void checkSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.remaining() == SNAPSHOT_HEADER_SIZE && header.getInt() == SNAPSHOT_MAGIC && header.getInt() == FORMAT_VERSION) {
+                return;
+            }
+        }
+
+        setSnapshotAside();
+    }
+
+    /**
+     * Move a damaged snapshot aside, so it is neither read nor merged again
+     */
+    private void setSnapshotAside() throws IOException {
+        Path damaged = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".damaged");
+        Files.move(snapshotPath, damaged, StandardCopyOption.REPLACE_EXISTING);
+        plugin.getLogger().severe("The player data snapshot is damaged and was moved to " + damaged.getFileName());
+    }
+
+    /**
+     * Open the journal and replay its records. A torn record at the end,
+     * left by a crash during an append, is cut off.
+     */
+    private FileChannel openJournal() throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+
+            boolean valid = header.remaining() == JOURNAL_HEADER_SIZE && header.getInt() == JOURNAL_MAGIC && header.getInt() == FORMAT_VERSION;
+            if (!valid) {
+                if (channel.size() > 0) {
+                    plugin.getLogger().severe("The player data journal has an unknown format and was reset");
+                }
+                channel.truncate(0);
+                ByteBuffer fresh = ByteBuffer.allocate(JOURNAL_HEADER_SIZE).putInt(JOURNAL_MAGIC).putInt(FORMAT_VERSION);
+                fresh.flip();
+                channel.write(fresh, 0);
+                channel.force(true);
+                return channel;
+            }
+
+            RecordReader reader = new RecordReader(channel, JOURNAL_HEADER_SIZE);
+            PlayerRecord record;
+            while ((record = reader.next()) != null) {
+                journaled.put(record.getUniqueId(), record);
+                appended++;
+            }
+
+            if (reader.isTorn()) {
+                plugin.getLogger().warning("Dropped an incomplete record at the end of the player data journal");
+                channel.truncate(reader.getValidEnd());
+                channel.force(true);
+            }
+
+            plugin.debug("Replayed " + appended + " records from the player data journal");
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer ensureBuffer(int size) {
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private void encode(ByteBuffer out, PlayerRecord record) {
+        int start = out.position();
+        out.putLong(record.getUniqueId().getMostSignificantBits());
+        out.putLong(record.getUniqueId().getLeastSignificantBits());
+        out.putInt(record.getRadiationLevel());
+        out.putLong(record.getRadXExpiry());
+        out.putLong(record.getLevelTime());
+
+        crc.reset();
+        crc.update(out.array(), out.arrayOffset() + start, CHECKSUMMED_SIZE);
+        out.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Read the record at the position of a buffer
+     *
+     * @return The record, or null if its checksum does not match
+     */
+    private static PlayerRecord decode(ByteBuffer in, CRC32 crc) {
+        crc.reset();
+        crc.update(in.array(), in.arrayOffset() + in.position(), CHECKSUMMED_SIZE);
+
+        long most = in.getLong();
+        long least = in.getLong();
+        int level = in.getInt();
+        long radXExpiry = in.getLong();
+        long levelTime = in.getLong();
+        int checksum = in.getInt();
+
+        if (checksum != (int) crc.getValue()) {
+            return null;
+        }
+        return new PlayerRecord(new UUID(most, least), Math.max(0, level), levelTime, radXExpiry);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer block) throws IOException {
+        block.flip();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        block.clear();
+    }
+
+    /**
+     * Read from a position until the buffer is full or the file ends
+     *
+     * @return The number of bytes read
+     */
+    private static int readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        int total = 0;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Reads records one by one from a position of a channel through a
+     * buffer. Stops at the end of the file or at the first record whose
+     * checksum does not match.
+     */
+    private static final class RecordReader {
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * BUFFER_RECORDS);
+        private final CRC32 crc = new CRC32();
+        private long position;
+        private long validEnd;
+        private boolean torn;
+
+        private RecordReader(FileChannel channel, long start) {
+            this.channel = channel;
+            this.position = start;
+            this.validEnd = start;
+            block.flip();
+        }
+
+        /**
+         * @return The next record, or null at the end
+         */
+        private PlayerRecord next() throws IOException {
+            if (torn) {
+                return null;
+            }
+
+            if (block.remaining() < RECORD_SIZE) {
+                block.compact();
+                position += readFully(channel, block, position);
+                block.flip();
+            }
+
+            if (block.remaining() < RECORD_SIZE) {
+                torn = block.hasRemaining();
+                return null;
+            }
+
+            PlayerRecord record = decode(block, crc);
+            if (record == null) {
+                torn = true;
+                return null;
+            }
+
+            validEnd += RECORD_SIZE;
+            return record;
+        }
+
+        /**
+         * @return true if reading stopped at a partial or damaged record
+         */
+        private boolean isTorn() {
+            return torn;
+        }
+
+        /**
+         * @return The file position after the last valid record
+         */
+        private long getValidEnd() {
+            return validEnd;
+        }
+    }
+
+    private static final class PendingSave {
+        private final List<PlayerRecord> records;
+        private final CompletableFuture<List<PlayerRecord>> future = new CompletableFuture<>();
+
+        private PendingSave(List<PlayerRecord> records) {
+            this.records = records;
+        }
+    }
+}
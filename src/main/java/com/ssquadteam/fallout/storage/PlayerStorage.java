@@ -0,0 +1,64 @@
+package com.ssquadteam.fallout.storage;
+
+import com.ssquadteam.fallout.models.PlayerRecord;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend that stores player radiation data. Saves are applied in the order
+ * they are submitted, so an older snapshot never overwrites a newer one.
+ */
+public interface PlayerStorage {
+
+    /**
+     * Load the stored record of a player on the calling thread
+     *
+     * @param uuid The player UUID
+     * @return The stored record, or null if the player has no stored data
+     */
+    PlayerRecord load(UUID uuid);
+
+    /**
+     * Find which of a batch of players have stored data, on the calling thread
+     *
+     * @param uuids The player UUIDs
+     * @return The UUIDs of the players with stored data, or null if the data could not be read
+     */
+    Set<UUID> findStored(Collection<UUID> uuids);
+
+    /**
+     * Load the stored record of a player off the calling thread. Loads do not
+     * wait for queued saves, so callers hold the records they submitted until
+     * the save completes and serve those instead.
+     *
+     * @param uuid The player UUID
+     * @return A future with the stored record, or null if the player has no stored data
+     */
+    CompletableFuture<PlayerRecord> loadAsync(UUID uuid);
+
+    /**
+     * Write changed records on the calling thread. Records with nothing left
+     * to store delete the player's data.
+     *
+     * @param records The records to write
+     * @return The records that could not be written
+     */
+    List<PlayerRecord> save(List<PlayerRecord> records);
+
+    /**
+     * Write changed records off the calling thread, after all earlier saves
+     *
+     * @param records The records to write
+     * @return A future with the records that could not be written
+     */
+    CompletableFuture<List<PlayerRecord>> saveAsync(List<PlayerRecord> records);
+
+    /**
+     * Finish the queued saves and release the backend
+     */
+    void close();
+}
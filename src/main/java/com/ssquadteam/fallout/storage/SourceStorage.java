@@ -0,0 +1,29 @@
+package com.ssquadteam.fallout.storage;
+
+import com.ssquadteam.fallout.models.RadiationSource;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Backend that stores the radiation sources. Sources are few and only
+ * change through commands, so they are always loaded and saved as a whole.
+ */
+public interface SourceStorage {
+
+    /**
+     * Load all stored sources. Sources that can not be read are logged and
+     * skipped.
+     *
+     * @return The stored sources
+     */
+    List<RadiationSource> loadSources();
+
+    /**
+     * Replace the stored sources with the given ones
+     *
+     * @param sources The sources to store
+     * @return The number of sources that were saved
+     */
+    int saveSources(Collection<RadiationSource> sources);
+}
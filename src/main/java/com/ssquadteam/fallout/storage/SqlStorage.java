@@ -0,0 +1,461 @@
+package com.ssquadteam.fallout.storage;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.models.PlayerRecord;
+import com.ssquadteam.fallout.models.RadiationSource;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Stores player data and radiation sources in a MySQL compatible database.
+ * Changed players are written as one batch of upserts and deletes in a
+ * single transaction. Player saves run one after another on a single writer
+ * thread, so an older snapshot never overwrites a newer one, while loads
+ * run on a thread of their own so logins never wait for a save. A statement
+ * that fails because the connection was lost is retried once on a fresh
+ * connection.
+ */
+public class SqlStorage implements PlayerStorage, SourceStorage {
+
+    private final Fallout plugin;
+    private final ConnectionPool pool;
+    private final String sourcesTable;
+    private final String playerDataTable;
+    private final ExecutorService writer;
+    private final ExecutorService reader;
+
+    /**
+     * @param plugin The plugin
+     * @param pool The pool to take connections from
+     * @param tablePrefix The prefix of the table names
+     */
+    public SqlStorage(Fallout plugin, ConnectionPool pool, String tablePrefix) {
+        this.plugin = plugin;
+        this.pool = pool;
+        this.sourcesTable = tablePrefix + "sources";
+        this.playerDataTable = tablePrefix + "player_data";
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fallout Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fallout Storage Reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create the tables if they don't exist
+     *
+     * @throws SQLException If the database can not be reached
+     */
+    public void createTables() throws SQLException {
+        String sources = "CREATE TABLE IF NOT EXISTS " + sourcesTable + " ("
+                + "id VARCHAR(36) PRIMARY KEY,"
+                + "name VARCHAR(64) NOT NULL,"
+                + "world VARCHAR(64) NOT NULL,"
+                + "x DOUBLE NOT NULL,"
+                + "y DOUBLE NOT NULL,"
+                + "z DOUBLE NOT NULL,"
+                + "radius INT NOT NULL,"
+                + "strength INT NOT NULL,"
+                + "power INT NOT NULL,"
+                + "falloff VARCHAR(16) NOT NULL DEFAULT 'LINEAR',"
+                + "shape TEXT,"
+                + "active BOOLEAN NOT NULL"
+                + ")";
+
+        String playerData = "CREATE TABLE IF NOT EXISTS " + playerDataTable + " ("
+                + "uuid VARCHAR(36) PRIMARY KEY,"
+                + "radiation_level INT NOT NULL,"
+                + "level_time BIGINT NOT NULL DEFAULT 0,"
+                + "rad_x_expiry BIGINT"
+                + ")";
+
+        // Tables created before levels decayed over time lack the level time
+        String addLevelTime = "ALTER TABLE " + playerDataTable + " ADD COLUMN level_time BIGINT NOT NULL DEFAULT 0";
+
+        // Tables created before sources had falloff curves are all linear
+        String addFalloff = "ALTER TABLE " + sourcesTable + " ADD COLUMN falloff VARCHAR(16) NOT NULL DEFAULT 'LINEAR'";
+
+        // Sources without a shape are spheres
+        String addShape = "ALTER TABLE " + sourcesTable + " ADD COLUMN shape TEXT";
+
+        execute(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sources);
+                statement.executeUpdate(playerData);
+                if (!hasColumn(connection, playerDataTable, "level_time")) {
+                    statement.executeUpdate(addLevelTime);
+                }
+                if (!hasColumn(connection, sourcesTable, "falloff")) {
+                    statement.executeUpdate(addFalloff);
+                }
+                if (!hasColumn(connection, sourcesTable, "shape")) {
+                    statement.executeUpdate(addShape);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public PlayerRecord load(UUID uuid) {
+        String sql = "SELECT radiation_level, level_time, rad_x_expiry FROM " + playerDataTable + " WHERE uuid = ?";
+        try {
+            return execute(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setString(1, uuid.toString());
+                    try (ResultSet result = statement.executeQuery()) {
+                        if (!result.next()) {
+                            return null;
+                        }
+                        return new PlayerRecord(uuid, Math.max(0, result.getInt(1)), result.getLong(2), result.getLong(3));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not load player data of " + uuid + " from the database", e);
+            return null;
+        }
+    }
+
+    @Override
+    public Set<UUID> findStored(Collection<UUID> uuids) {
+        Set<UUID> stored = new HashSet<>();
+        if (uuids.isEmpty()) {
+            return stored;
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT uuid FROM ").append(playerDataTable).append(" WHERE uuid IN (");
+        for (int i = 0; i < uuids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try {
+            execute(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    for (UUID uuid : uuids) {
+                        statement.setString(index++, uuid.toString());
+                    }
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            stored.add(UUID.fromString(result.getString(1)));
+                        }
+                    }
+                }
+                return null;
+            });
+            return stored;
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not look up the player data of " + uuids.size() + " players in the database", e);
+            return null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> loadAsync(UUID uuid) {
+        return CompletableFuture.supplyAsync(() -> load(uuid), reader);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> saveAsync(List<PlayerRecord> records) {
+        return CompletableFuture.supplyAsync(() -> save(records), writer);
+    }
+
+    @Override
+    public synchronized List<PlayerRecord> save(List<PlayerRecord> records) {
+        if (records.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String upsert = "INSERT INTO " + playerDataTable + " (uuid, radiation_level, level_time, rad_x_expiry) VALUES (?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE radiation_level = VALUES(radiation_level), level_time = VALUES(level_time),"
+                + " rad_x_expiry = VALUES(rad_x_expiry)";
+        String delete = "DELETE FROM " + playerDataTable + " WHERE uuid = ?";
+        long now = System.currentTimeMillis();
+
+        try {
+            execute(connection -> inTransaction(connection, () -> {
+                try (PreparedStatement upsertStatement = connection.prepareStatement(upsert);
+                     PreparedStatement deleteStatement = connection.prepareStatement(delete)) {
+                    boolean upserts = false;
+                    boolean deletes = false;
+
+                    for (PlayerRecord record : records) {
+                        if (record.isEmpty(now)) {
+                            deleteStatement.setString(1, record.getUniqueId().toString());
+                            deleteStatement.addBatch();
+                            deletes = true;
+                        } else {
+                            upsertStatement.setString(1, record.getUniqueId().toString());
+                            upsertStatement.setInt(2, record.getRadiationLevel());
+                            upsertStatement.setLong(3, record.getLevelTime());
+                            // Save Rad-X effect only if it hasn't expired
+                            upsertStatement.setLong(4, record.getRadXExpiry() > now ? record.getRadXExpiry() : 0);
+                            upsertStatement.addBatch();
+                            upserts = true;
+                        }
+                    }
+
+                    if (upserts) {
+                        upsertStatement.executeBatch();
+                    }
+                    if (deletes) {
+                        deleteStatement.executeBatch();
+                    }
+                }
+            }));
+            return new ArrayList<>();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not save player data of " + records.size() + " players to the database", e);
+            return new ArrayList<>(records);
+        }
+    }
+
+    @Override
+    public List<RadiationSource> loadSources() {
+        String sql = "SELECT id, name, world, x, y, z, radius, strength, power, falloff, shape, active FROM " + sourcesTable;
+        List<RadiationSource> sources = new ArrayList<>();
+        try {
+            execute(connection -> {
+                sources.clear();
+                try (PreparedStatement statement = connection.prepareStatement(sql);
+                     ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        String id = result.getString("id");
+                        World world = Bukkit.getWorld(result.getString("world"));
+                        if (world == null) {
+                            plugin.getLogger().warning("Failed to load radiation source " + id + ": unknown world " + result.getString("world"));
+                            continue;
+                        }
+
+                        Map<String, Object> sourceMap = new HashMap<>();
+                        sourceMap.put("id", id);
+                        sourceMap.put("name", result.getString("name"));
+                        sourceMap.put("location", new Location(world, result.getDouble("x"), result.getDouble("y"), result.getDouble("z")));
+                        sourceMap.put("radius", result.getInt("radius"));
+                        sourceMap.put("strength", result.getInt("strength"));
+                        sourceMap.put("power", result.getInt("power"));
+                        sourceMap.put("falloff", result.getString("falloff"));
+                        sourceMap.put("shape", result.getString("shape"));
+                        sourceMap.put("active", result.getBoolean("active"));
+
+                        try {
+                            sources.add(new RadiationSource(sourceMap));
+                        } catch (Exception e) {
+                            plugin.getLogger().warning("Failed to load radiation source " + id + ": " + e.getMessage());
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not load radiation sources from the database", e);
+        }
+        return sources;
+    }
+
+    @Override
+    public int saveSources(Collection<RadiationSource> sources) {
+        String upsert = "INSERT INTO " + sourcesTable + " (id, name, world, x, y, z, radius, strength, power, falloff, shape, active)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE name = VALUES(name), world = VALUES(world), x = VALUES(x), y = VALUES(y),"
+                + " z = VALUES(z), radius = VALUES(radius), strength = VALUES(strength), power = VALUES(power),"
+                + " falloff = VALUES(falloff), shape = VALUES(shape), active = VALUES(active)";
+        String selectIds = "SELECT id FROM " + sourcesTable;
+        String delete = "DELETE FROM " + sourcesTable + " WHERE id = ?";
+
+        // Copy the values first, the sources may be edited while we write
+        List<Object[]> rows = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (RadiationSource source : sources) {
+            Location location = source.getLocation();
+            if (location == null || location.getWorld() == null) {
+                plugin.getLogger().warning("Failed to save radiation source " + source.getId() + ": its world is not loaded");
+                continue;
+            }
+
+            String id = source.getId().toString();
+            ids.add(id);
+            rows.add(new Object[] {
+                    id, source.getName(), location.getWorld().getName(), location.getX(), location.getY(), location.getZ(),
+                    source.getRadius(), source.getStrength(), source.getPower(), source.getFalloff().name(),
+                    source.getShape() != null ? source.getShape().serialize() : null, source.isActive()
+            });
+        }
+
+        try {
+            execute(connection -> inTransaction(connection, () -> {
+                List<String> removed = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement(selectIds);
+                     ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        String id = result.getString(1);
+                        if (!ids.contains(id)) {
+                            removed.add(id);
+                        }
+                    }
+                }
+
+                try (PreparedStatement upsertStatement = connection.prepareStatement(upsert);
+                     PreparedStatement deleteStatement = connection.prepareStatement(delete)) {
+                    for (Object[] row : rows) {
+                        for (int column = 0; column < row.length; column++) {
+                            upsertStatement.setObject(column + 1, row[column]);
+                        }
+                        upsertStatement.addBatch();
+                    }
+
+                    for (String id : removed) {
+                        deleteStatement.setString(1, id);
+                        deleteStatement.addBatch();
+                    }
+
+                    if (!rows.isEmpty()) {
+                        upsertStatement.executeBatch();
+                    }
+                    if (!removed.isEmpty()) {
+                        deleteStatement.executeBatch();
+                    }
+                }
+            }));
+            return rows.size();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not save radiation sources to the database", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        reader.shutdown();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for player data to be saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.close();
+    }
+
+    /**
+     * Run an operation on a pooled connection. If it fails because the
+     * connection was lost, the connection is dropped and the operation is
+     * retried once on a new one.
+     */
+    private <T> T execute(SqlOperation<T> operation) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            Connection connection = pool.borrow();
+            boolean broken = false;
+            try {
+                return operation.run(connection);
+            } catch (SQLException e) {
+                broken = isConnectionError(e);
+                if (!broken || attempt > 0) {
+                    throw e;
+                }
+                plugin.getLogger().warning("Lost the database connection, reconnecting: " + e.getMessage());
+            } finally {
+                pool.release(connection, broken);
+            }
+        }
+    }
+
+    /**
+     * Run statements in one transaction, rolling back if any of them fails
+     */
+    private static Void inTransaction(Connection connection, SqlStatements statements) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            statements.run();
+            connection.commit();
+            return null;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                // A broken connection is dropped by execute
+            }
+        }
+    }
+
+    /**
+     * Check if a table has a column, trying the name in both cases as
+     * databases differ in how they store unquoted identifiers
+     */
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[] {table, table.toUpperCase()}) {
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, name, null)) {
+                while (columns.next()) {
+                    if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if an error means the connection itself is unusable, rather than
+     * the statement being invalid. SQL state class 08 is "connection exception".
+     */
+    private static boolean isConnectionError(SQLException e) {
+        if (e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTransientConnectionException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    @FunctionalInterface
+    private interface SqlOperation<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SqlStatements {
+        void run() throws SQLException;
+    }
+}
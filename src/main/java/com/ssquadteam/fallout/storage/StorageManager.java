@@ -3,24 +3,27 @@ package com.ssquadteam.fallout.storage;
 import com.ssquadteam.fallout.Fallout;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.logging.Level;
 
 /**
- * Manages data storage for the plugin
+ * Manages data storage for the plugin. Picks the player and source storage
+ * backends from the config and falls back to YAML if the database can not
+ * be reached.
  */
 public class StorageManager {
 
+    private static final String DEFAULT_TABLE_PREFIX = "fallout_";
+
     private final Fallout plugin;
     private StorageType storageType;
-    private Connection mysqlConnection;
+    private PlayerStorage playerStorage;
+    private SourceStorage sourceStorage;
 
     public StorageManager(Fallout plugin) {
         this.plugin = plugin;
-        
+
         // Determine storage type from config
         String storageTypeStr = plugin.getConfigManager().getConfig().getString("storage.type", "YAML");
         try {
@@ -29,15 +32,26 @@ public class StorageManager {
             plugin.getLogger().warning("Invalid storage type: " + storageTypeStr + ". Defaulting to YAML.");
             this.storageType = StorageType.YAML;
         }
-        
+
         // Initialize storage
         if (storageType == StorageType.MYSQL) {
             initializeMysql();
         }
+
+        if (storageType == StorageType.JOURNAL) {
+            initializeJournal();
+        }
+
+        if (storageType == StorageType.YAML) {
+            playerStorage = new YamlPlayerStorage(plugin);
+        }
+        if (sourceStorage == null) {
+            sourceStorage = new YamlSourceStorage(plugin);
+        }
     }
 
     /**
-     * Initialize MySQL connection
+     * Initialize the MySQL connection pool and tables
      */
     private void initializeMysql() {
         FileConfiguration config = plugin.getConfigManager().getConfig();
@@ -46,18 +60,33 @@ public class StorageManager {
         String database = config.getString("storage.mysql.database", "fallout");
         String username = config.getString("storage.mysql.username", "root");
         String password = config.getString("storage.mysql.password", "password");
-        String tablePrefix = config.getString("storage.mysql.table-prefix", "fallout_");
-        
-        String url = "jdbc:mysql://" + host + ":" + port + "/" + database;
-        
+        String tablePrefix = config.getString("storage.mysql.table-prefix", DEFAULT_TABLE_PREFIX);
+        int poolSize = Math.max(1, config.getInt("storage.mysql.pool-size", 4));
+        long connectionTimeout = Math.max(100, config.getLong("storage.mysql.connection-timeout", 5000));
+
+        // The prefix is part of the SQL, so only allow plain identifiers
+        if (!tablePrefix.matches("[A-Za-z0-9_]*")) {
+            plugin.getLogger().warning("Invalid table prefix: " + tablePrefix + ". Defaulting to " + DEFAULT_TABLE_PREFIX + ".");
+            tablePrefix = DEFAULT_TABLE_PREFIX;
+        }
+
+        // A full URL can point to any MySQL compatible database, e.g. an embedded one for testing
+        String url = config.getString("storage.mysql.jdbc-url", "");
+        if (url == null || url.isEmpty()) {
+            url = "jdbc:mysql://" + host + ":" + port + "/" + database;
+        }
+
+        ConnectionPool pool = new ConnectionPool(url, username, password, poolSize, connectionTimeout);
+        SqlStorage sqlStorage = new SqlStorage(plugin, pool, tablePrefix);
         try {
-            mysqlConnection = DriverManager.getConnection(url, username, password);
-            
             // Create tables if they don't exist
-            createTables(tablePrefix);
-            
+            sqlStorage.createTables();
+
+            playerStorage = sqlStorage;
+            sourceStorage = sqlStorage;
             plugin.getLogger().info("Connected to MySQL database!");
         } catch (SQLException e) {
+            sqlStorage.close();
             plugin.getLogger().log(Level.SEVERE, "Failed to connect to MySQL database: " + e.getMessage(), e);
             plugin.getLogger().warning("Falling back to YAML storage.");
             storageType = StorageType.YAML;
@@ -65,57 +94,30 @@ public class StorageManager {
     }
 
     /**
-     * Create necessary database tables
-     * 
-     * @param prefix Table prefix
-     * @throws SQLException If an error occurs
+     * Open the player data journal. Sources are few and rarely change, so
+     * they stay in sources.yml.
      */
-    private void createTables(String prefix) throws SQLException {
-        // Create sources table
-        String sourcesTable = "CREATE TABLE IF NOT EXISTS " + prefix + "sources ("
-                + "id VARCHAR(36) PRIMARY KEY,"
-                + "name VARCHAR(64) NOT NULL,"
-                + "world VARCHAR(64) NOT NULL,"
-                + "x DOUBLE NOT NULL,"
-                + "y DOUBLE NOT NULL,"
-                + "z DOUBLE NOT NULL,"
-                + "radius INT NOT NULL,"
-                + "strength INT NOT NULL,"
-                + "power INT NOT NULL,"
-                + "active BOOLEAN NOT NULL"
-                + ")";
-        
-        // Create player data table
-        String playerDataTable = "CREATE TABLE IF NOT EXISTS " + prefix + "player_data ("
-                + "uuid VARCHAR(36) PRIMARY KEY,"
-                + "radiation_level INT NOT NULL,"
-                + "rad_x_expiry BIGINT"
-                + ")";
-        
-        try (PreparedStatement sourcesStmt = mysqlConnection.prepareStatement(sourcesTable);
-             PreparedStatement playerDataStmt = mysqlConnection.prepareStatement(playerDataTable)) {
-            
-            sourcesStmt.executeUpdate();
-            playerDataStmt.executeUpdate();
+    private void initializeJournal() {
+        int compactAfter = plugin.getConfigManager().getConfig().getInt("storage.journal.compact-after", 100000);
+        try {
+            playerStorage = new JournalPlayerStorage(plugin, compactAfter);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open the player data journal: " + e.getMessage(), e);
+            plugin.getLogger().warning("Falling back to YAML storage.");
+            storageType = StorageType.YAML;
         }
     }
 
     /**
-     * Close the database connection
+     * Finish pending saves and release the storage. Call after the final save.
      */
-    public void closeConnection() {
-        if (mysqlConnection != null) {
-            try {
-                mysqlConnection.close();
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.WARNING, "Error closing MySQL connection: " + e.getMessage(), e);
-            }
-        }
+    public void close() {
+        playerStorage.close();
     }
 
     /**
      * Get the current storage type
-     * 
+     *
      * @return The storage type
      */
     public StorageType getStorageType() {
@@ -123,12 +125,21 @@ public class StorageManager {
     }
 
     /**
-     * Get the MySQL connection
-     * 
-     * @return The connection or null if not using MySQL
+     * Get the backend that stores player data
+     *
+     * @return The PlayerStorage instance
+     */
+    public PlayerStorage getPlayerStorage() {
+        return playerStorage;
+    }
+
+    /**
+     * Get the backend that stores the radiation sources
+     *
+     * @return The SourceStorage instance
      */
-    public Connection getMysqlConnection() {
-        return mysqlConnection;
+    public SourceStorage getSourceStorage() {
+        return sourceStorage;
     }
 
     /**
@@ -136,6 +147,7 @@ public class StorageManager {
      */
     public enum StorageType {
         YAML,
-        MYSQL
+        MYSQL,
+        JOURNAL
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.ssquadteam.fallout.storage;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.models.PlayerRecord;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Stores player radiation data as one small YAML file per player in the
+ * playerdata folder. Only changed players are written, and every file is
+ * replaced atomically so a crash never leaves a half-written record.
+ * Saves run one after another on a single writer thread, so an older
+ * snapshot never overwrites a newer one, while loads run on a thread of
+ * their own so logins never wait for a save.
+ */
+public class YamlPlayerStorage implements PlayerStorage {
+
+    private static final String EXTENSION = ".yml";
+
+    private final Fallout plugin;
+    private final File folder;
+    private final ExecutorService writer;
+    private final ExecutorService reader;
+
+    public YamlPlayerStorage(Fallout plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "playerdata");
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fallout Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fallout Storage Reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public PlayerRecord load(UUID uuid) {
+        File file = getPath(uuid).toFile();
+        if (!file.exists()) {
+            return null;
+        }
+
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        return new PlayerRecord(
+                uuid,
+                Math.max(0, yaml.getInt("radiation-level", 0)),
+                yaml.getLong("level-time", 0),
+                yaml.getLong("rad-x-expiry", 0)
+        );
+    }
+
+    @Override
+    public Set<UUID> findStored(Collection<UUID> uuids) {
+        Set<UUID> stored = new HashSet<>();
+        for (UUID uuid : uuids) {
+            if (Files.exists(getPath(uuid))) {
+                stored.add(uuid);
+            }
+        }
+        return stored;
+    }
+
+    @Override
+    public CompletableFuture<PlayerRecord> loadAsync(UUID uuid) {
+        return CompletableFuture.supplyAsync(() -> load(uuid), reader);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> saveAsync(List<PlayerRecord> records) {
+        return CompletableFuture.supplyAsync(() -> save(records), writer);
+    }
+
+    @Override
+    public void close() {
+        reader.shutdown();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for player data to be saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized List<PlayerRecord> save(List<PlayerRecord> records) {
+        List<PlayerRecord> failed = new ArrayList<>();
+        if (records.isEmpty()) {
+            return failed;
+        }
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            plugin.getLogger().severe("Could not create the playerdata folder");
+            failed.addAll(records);
+            return failed;
+        }
+
+        long now = System.currentTimeMillis();
+        for (PlayerRecord record : records) {
+            try {
+                if (record.isEmpty(now)) {
+                    Files.deleteIfExists(getPath(record.getUniqueId()));
+                } else {
+                    write(record, now);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not save player data of " + record.getUniqueId(), e);
+                failed.add(record);
+            }
+        }
+
+        return failed;
+    }
+
+    private void write(PlayerRecord record, long now) throws IOException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        if (record.getRadiationLevel() > 0) {
+            yaml.set("radiation-level", record.getRadiationLevel());
+            yaml.set("level-time", record.getLevelTime());
+        }
+
+        // Save Rad-X effect if it exists and hasn't expired
+        if (record.getRadXExpiry() > now) {
+            yaml.set("rad-x-expiry", record.getRadXExpiry());
+        }
+
+        Path target = getPath(record.getUniqueId());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, yaml.saveToString().getBytes(StandardCharsets.UTF_8));
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path getPath(UUID uuid) {
+        return new File(folder, uuid + EXTENSION).toPath();
+    }
+}
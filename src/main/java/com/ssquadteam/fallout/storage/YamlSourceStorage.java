@@ -0,0 +1,81 @@
+package com.ssquadteam.fallout.storage;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.models.RadiationSource;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the radiation sources in sources.yml
+ */
+public class YamlSourceStorage implements SourceStorage {
+
+    private final Fallout plugin;
+
+    public YamlSourceStorage(Fallout plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public List<RadiationSource> loadSources() {
+        List<RadiationSource> sources = new ArrayList<>();
+        FileConfiguration config = plugin.getConfigManager().getSourcesConfig();
+        ConfigurationSection sourcesSection = config.getConfigurationSection("sources");
+        
+        if (sourcesSection == null) {
+            plugin.debug("No radiation sources found in sources.yml");
+            return sources;
+        }
+        
+        for (String key : sourcesSection.getKeys(false)) {
+            try {
+                ConfigurationSection sourceSection = sourcesSection.getConfigurationSection(key);
+                if (sourceSection == null) continue;
+                
+                Map<String, Object> sourceMap = new HashMap<>();
+                for (String field : sourceSection.getKeys(false)) {
+                    sourceMap.put(field, sourceSection.get(field));
+                }
+                
+                sources.add(new RadiationSource(sourceMap));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to load radiation source at key " + key + ": " + e.getMessage());
+            }
+        }
+        
+        return sources;
+    }
+
+    @Override
+    public int saveSources(Collection<RadiationSource> sources) {
+        FileConfiguration config = plugin.getConfigManager().getSourcesConfig();
+        config.set("sources", null); // Clear existing sources
+        
+        ConfigurationSection sourcesSection = config.createSection("sources");
+        
+        int count = 0;
+        for (RadiationSource source : sources) {
+            try {
+                ConfigurationSection sourceSection = sourcesSection.createSection(source.getId().toString());
+                Map<String, Object> serialized = source.serialize();
+                
+                for (Map.Entry<String, Object> entry : serialized.entrySet()) {
+                    sourceSection.set(entry.getKey(), entry.getValue());
+                }
+                
+                count++;
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to save radiation source " + source.getId() + ": " + e.getMessage());
+            }
+        }
+        
+        plugin.getConfigManager().saveSourcesConfig();
+        return count;
+    }
+}
@@ -1,67 +1,490 @@
 package com.ssquadteam.fallout.tasks;
 
 import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.events.RadiationZoneEnterEvent;
+import com.ssquadteam.fallout.events.RadiationZoneLeaveEvent;
+import com.ssquadteam.fallout.managers.PlayerStateTable;
+import com.ssquadteam.fallout.managers.RadiationManager;
+import com.ssquadteam.fallout.managers.RadiationSourceManager;
+import com.ssquadteam.fallout.managers.ShieldingManager;
+import com.ssquadteam.fallout.models.PlayerRadiationState;
+import com.ssquadteam.fallout.models.RadiationSource;
+import com.ssquadteam.fallout.scheduler.TaskScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Particle;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 /**
- * Task that periodically checks for players in radiation zones
+ * Task that periodically checks for players in radiation zones.
+ * <p>
+ * On single-threaded servers the task runs every tick and checks one bucket
+ * of players, chosen by a hash of their id modulo the check interval, so
+ * each player is still checked once per interval while the cost is spread
+ * evenly over the ticks. Each check runs in three stages: the player
+ * positions are captured on the main thread, the radiation field and the
+ * resulting gain are evaluated on a pool of worker threads, and the results
+ * are applied back on the main thread, which is the only stage that calls
+ * into Bukkit. A bucket captured on one tick is applied at the start of the
+ * next, while that tick's bucket is already being evaluated, so every tick
+ * still starts a check. Only when the workers fall more than one bucket
+ * behind is a tick skipped.
+ * <p>
+ * On region-threaded servers every player gets their own repeating task on
+ * the thread that owns their region, which runs all three stages inline.
  */
-public class RadiationTask extends BukkitRunnable {
+public class RadiationTask implements Runnable {
+
+    private static final int UNKNOWN = -1;
+    private static final int PARTICLE_COUNT = 3;
+    private static final int FORCE_PARTICLE_DISTANCE = 32;
+    private static final int MAX_PENDING_BATCHES = 2;
 
     private final Fallout plugin;
-    private int damageCounter = 0;
+    private final TaskScheduler scheduler;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+    private final Queue<Batch> evaluatedBatches = new ConcurrentLinkedQueue<>();
+    private long tick = 0;
+    private long checkInterval;
+    private TaskScheduler.Task globalTask;
+    private final ThreadLocal<Location> scratchLocation = ThreadLocal.withInitial(() -> new Location(null, 0, 0, 0));
+    private final ThreadLocal<List<Player>> scratchViewers = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<List<RadiationSource>> scratchSources = ThreadLocal.withInitial(ArrayList::new);
 
     public RadiationTask(Fallout plugin) {
         this.plugin = plugin;
+        this.scheduler = plugin.getTaskScheduler();
+        this.workerCount = plugin.getConfigManager().getSettings().getAsyncThreads();
+        
+        // Region threads already spread the work, so only the global pipeline needs workers
+        if (scheduler.isRegionThreaded()) {
+            this.workers = null;
+        } else {
+            AtomicInteger threadId = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "Fallout Worker #" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * Start checking players
+     * 
+     * @param checkInterval The interval between checks, in ticks
+     */
+    public void start(long checkInterval) {
+        this.checkInterval = checkInterval;
+        
+        if (scheduler.isRegionThreaded()) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                startPlayer(player);
+            }
+        } else {
+            globalTask = scheduler.runGlobalTimer(this, 20L, 1L);
+        }
+    }
+    
+    /**
+     * Start checking a player that joined. Only needed on region-threaded
+     * servers; the task stops by itself when the player leaves.
+     * 
+     * @param player The player
+     */
+    public void startPlayer(Player player) {
+        if (!scheduler.isRegionThreaded()) {
+            return;
+        }
+        
+        scheduler.runEntityTimer(player, () -> tickPlayer(player), 20L, checkInterval);
+    }
+    
+    /**
+     * Stop checking players and stop the worker threads. Checks that are
+     * still being evaluated are dropped.
+     */
+    public void shutdown() {
+        if (globalTask != null) {
+            globalTask.cancel();
+            globalTask = null;
+        }
+        
+        if (workers != null) {
+            workers.shutdownNow();
+        }
     }
 
+    /**
+     * Apply the buckets that finished evaluating, then check the players of
+     * this tick's bucket, on single-threaded servers
+     */
     @Override
     public void run() {
-        // Check each online player
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            // Skip players with bypass permission
-            if (player.hasPermission("fallout.bypass")) {
+        Batch evaluated;
+        while ((evaluated = evaluatedBatches.poll()) != null) {
+            try {
+                apply(evaluated.samples, evaluated.damageDue, evaluated.settings);
+            } finally {
+                pendingBatches.decrementAndGet();
+            }
+        }
+        
+        // Never fall more than one bucket behind, the same bucket is retried on the next tick instead
+        if (pendingBatches.get() >= MAX_PENDING_BATCHES) {
+            plugin.debug("Delaying radiation check, the previous ones have not finished yet");
+            return;
+        }
+        
+        Settings settings = plugin.getConfigManager().getSettings();
+        int bucketCount = Math.max(1, settings.getCheckInterval());
+        int bucket = (int) (tick++ % bucketCount);
+        
+        List<Sample> samples = new ArrayList<>();
+        List<PlayerRadiationState> damageDue = new ArrayList<>();
+        snapshot(settings, bucket, bucketCount, samples, damageDue);
+        
+        if (samples.isEmpty() && damageDue.isEmpty()) {
+            return;
+        }
+        
+        Batch batch = new Batch(samples, damageDue, settings);
+        pendingBatches.incrementAndGet();
+        
+        evaluate(samples).whenComplete((ignored, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to evaluate radiation zones", error);
+            }
+            evaluatedBatches.add(batch);
+        });
+    }
+    
+    /**
+     * Check a single player on the thread that owns their region, on
+     * region-threaded servers
+     * 
+     * @param player The player
+     */
+    private void tickPlayer(Player player) {
+        PlayerRadiationState state = plugin.getRadiationManager().getOnlinePlayers().get(player.getUniqueId());
+        if (state == null) {
+            return;
+        }
+        
+        Settings settings = plugin.getConfigManager().getSettings();
+        Sample sample = capture(state, settings, plugin.getSourceManager().getVersion());
+        
+        if (sample != null) {
+            evaluate(sample, plugin.getSourceManager());
+            apply(sample, settings);
+        }
+        
+        // Apply damage on the configured interval, counted per player
+        if (state.tickDamage(settings.getDamageInterval())) {
+            applyRadiationDamage(state, settings);
+        }
+    }
+    
+    /**
+     * First stage, on the main thread: capture the position and resistance of
+     * every player in a bucket, and count their checks towards damage
+     * 
+     * @param settings The current settings
+     * @param bucket The bucket to check
+     * @param bucketCount The number of buckets
+     * @param batch The list to add the samples to evaluate to
+     * @param damageDue The list to add the players that are due for damage to
+     */
+    private void snapshot(Settings settings, int bucket, int bucketCount, List<Sample> batch, List<PlayerRadiationState> damageDue) {
+        PlayerStateTable players = plugin.getRadiationManager().getOnlinePlayers();
+        long sourceVersion = plugin.getSourceManager().getVersion();
+        
+        for (int slot = 0; slot < players.size(); slot++) {
+            PlayerRadiationState state = players.getSlot(slot);
+            if (Math.floorMod(state.getUniqueId().hashCode(), bucketCount) != bucket) {
                 continue;
             }
             
-            // Skip players in disabled worlds
-            if (!isWorldEnabled(player.getWorld().getName())) {
-                continue;
+            Sample sample = capture(state, settings, sourceVersion);
+            if (sample != null) {
+                batch.add(sample);
             }
             
-            // Get player's location
-            Location location = player.getLocation();
+            // Apply damage on the configured interval, counted per player
+            if (state.tickDamage(settings.getDamageInterval())) {
+                damageDue.add(state);
+            }
+        }
+    }
+    
+    /**
+     * Capture the position and resistance of a player, on the thread that owns the player
+     * 
+     * @param state The player's state
+     * @param settings The current settings
+     * @param sourceVersion The current version of the source set
+     * @return The sample, or null if the player is not affected by radiation
+     */
+    private Sample capture(PlayerRadiationState state, Settings settings, long sourceVersion) {
+        Player player = state.getPlayer();
+        
+        // Skip players with bypass permission
+        if (player.hasPermission("fallout.bypass")) {
+            return null;
+        }
+        
+        // Skip players in disabled worlds
+        if (!settings.isWorldEnabled(player.getWorld().getName())) {
+            return null;
+        }
+        
+        // Get player's location without allocating a new Location
+        Location location = player.getLocation(scratchLocation.get());
+        Sample sample = new Sample(
+                state,
+                location.getWorld(),
+                location.getBlockX(),
+                location.getBlockY(),
+                location.getBlockZ(),
+                sourceVersion,
+                plugin.getRadiationManager().calculateResistanceMultiplier(state)
+        );
+        
+        // Reuse the previous result if the player is still in the same block and no source changed
+        if (state.matchesSample(sample.world, sample.x, sample.y, sample.z, sourceVersion)) {
+            sample.level = state.getSampleLevel();
+        }
+        
+        return sample;
+    }
+    
+    /**
+     * Second stage, on the worker threads: evaluate the radiation field at
+     * each sample and the gain after resistance. Only immutable snapshots of
+     * the source index are read.
+     * 
+     * @param batch The samples to evaluate
+     * @return A future that completes when all samples are evaluated
+     */
+    private CompletableFuture<Void> evaluate(List<Sample> batch) {
+        RadiationSourceManager sourceManager = plugin.getSourceManager();
+        int chunkSize = Math.max(1, (batch.size() + workerCount - 1) / workerCount);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>(workerCount);
+        
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(batch.size(), from + chunkSize);
+            chunks.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    evaluate(batch.get(i), sourceManager);
+                }
+            }, workers));
+        }
+        
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]));
+    }
+    
+    private void evaluate(Sample sample, RadiationSourceManager sourceManager) {
+        if (sample.level == UNKNOWN) {
+            sample.level = sourceManager.getRadiationLevelAt(sample.world, sample.x, sample.y, sample.z);
+        }
+        
+        if (sample.level > 0) {
+            sample.gain = (int) (calculateRadiationGain(sample.level) * (1.0 - sample.resistance));
+        }
+        
+        sample.evaluated = true;
+    }
+    
+    /**
+     * Third stage, on the main thread: apply the evaluated samples to the
+     * players that are still online, then damage the players that are due
+     * 
+     * @param batch The evaluated samples
+     * @param damageDue The players that are due for damage
+     * @param settings The settings the samples were captured with
+     */
+    private void apply(List<Sample> batch, List<PlayerRadiationState> damageDue, Settings settings) {
+        for (int i = 0, size = batch.size(); i < size; i++) {
+            apply(batch.get(i), settings);
+        }
+        
+        for (int i = 0, size = damageDue.size(); i < size; i++) {
+            PlayerRadiationState state = damageDue.get(i);
+            if (state.getSlot() >= 0) {
+                applyRadiationDamage(state, settings);
+            }
+        }
+    }
+    
+    private void apply(Sample sample, Settings settings) {
+        PlayerRadiationState state = sample.state;
+        
+        // Skip players that left while the sample was evaluated
+        if (!sample.evaluated || state.getSlot() < 0) {
+            return;
+        }
+        
+        state.setSample(sample.world, sample.x, sample.y, sample.z, sample.sourceVersion, sample.level);
+        RadiationManager radiationManager = plugin.getRadiationManager();
+        
+        // Shielding reads blocks, so it is applied here on the thread that owns the player rather than on the workers
+        int level = sample.level;
+        int gain = sample.gain;
+        if (level > 0 && settings.isShieldingEnabled()) {
+            level = getShieldedLevel(state, sample);
+            gain = level > 0 ? (int) (calculateRadiationGain(level) * (1.0 - sample.resistance)) : 0;
+        }
+        
+        updateZone(state, sample, level, settings);
+        
+        if (level > 0) {
+            // Radiation only decays outside of radiation zones
+            radiationManager.setDecaying(state, false);
             
-            // Get radiation level at location
-            int radiationLevel = plugin.getSourceManager().getRadiationLevelAt(location);
+            // Add radiation to player
+            if (gain > 0) {
+                radiationManager.setRadiationLevel(state, radiationManager.getRadiationLevel(state) + gain);
+            }
             
-            if (radiationLevel > 0) {
-                // Add radiation to player
-                plugin.getRadiationManager().addRadiation(player, calculateRadiationGain(radiationLevel));
-                
-                // Show particles if enabled
-                if (plugin.getConfigManager().getConfig().getBoolean("effects.particles.enabled", true)) {
-                    showRadiationParticles(player);
+            // Show particles if enabled
+            if (settings.isParticlesEnabled()) {
+                showRadiationParticles(state.getPlayer(), settings);
+            }
+        } else {
+            // Radiation decays over time when not in a radiation zone, only the display needs updating
+            radiationManager.setDecaying(state, true);
+            radiationManager.refreshRadiation(state);
+        }
+    }
+    
+    /**
+     * Get the shielded radiation level at a sample, reusing the player's
+     * last one while they stay in the same block and no source or block
+     * changed. A level built from stale or incomplete raycasts is not kept;
+     * the player's last exact level at the block is used instead, if any.
+     * 
+     * @param state The player's state, with the sample already set
+     * @param sample The evaluated sample
+     * @return The shielded radiation level
+     */
+    private int getShieldedLevel(PlayerRadiationState state, Sample sample) {
+        ShieldingManager shielding = plugin.getShieldingManager();
+        long generation = shielding.getGeneration();
+        if (state.matchesShielding(generation)) {
+            return state.getShieldedLevel();
+        }
+        
+        long approximations = shielding.getApproximations();
+        int level = plugin.getSourceManager().getShieldedRadiationLevelAt(sample.world, sample.x, sample.y, sample.z, shielding);
+        if (shielding.getApproximations() == approximations) {
+            state.setShieldedLevel(level, generation);
+            return level;
+        }
+        return state.hasShieldedLevel() ? state.getShieldedLevel() : level;
+    }
+    
+    /**
+     * Track the zone a player is inside and call the enter and leave events
+     * on transitions. A player enters the strongest source at their position
+     * and only leaves it once they are further than the hysteresis distance
+     * outside its reach, so standing on the boundary does not flicker.
+     * Outside of a zone, a block where no zone was found is not searched
+     * again until the player moves or a source changes, so players
+     * irradiated by blocks alone do not pay for a search on every check.
+     * 
+     * @param state The player's state
+     * @param sample The evaluated sample
+     * @param level The radiation level at the player's position
+     * @param settings The current settings
+     */
+    private void updateZone(PlayerRadiationState state, Sample sample, int level, Settings settings) {
+        Player player = state.getPlayer();
+        double x = sample.x + 0.5;
+        double y = sample.y + 0.5;
+        double z = sample.z + 0.5;
+        
+        RadiationSource zone = state.getZone();
+        if (zone != null) {
+            // Follow the zone across reloads, which replace the source objects
+            RadiationSource current = plugin.getSourceManager().getSource(zone.getId());
+            if (current != null) {
+                zone = current;
+                state.setZone(current);
+                if (current.isInRange(sample.world, x, y, z, settings.getZoneHysteresis())) {
+                    return;
                 }
-            } else {
-                // Slowly decrease radiation when not in a radiation zone
-                decreaseRadiation(player);
             }
+            
+            RadiationZoneLeaveEvent event = new RadiationZoneLeaveEvent(player, zone);
+            Bukkit.getPluginManager().callEvent(event);
+            
+            // A removed zone is left even if the event is cancelled
+            if (event.isCancelled() && current != null) {
+                return;
+            }
+            state.setZone(null);
         }
         
-        // Apply damage on the configured interval
-        damageCounter++;
-        int damageInterval = plugin.getConfigManager().getConfig().getInt("damage.interval", 60);
+        if (level <= 0 || state.isZoneSearched()) {
+            return;
+        }
         
-        if (damageCounter >= damageInterval) {
-            damageCounter = 0;
-            applyRadiationDamage();
+        // Radioactive blocks are not zones, so there may be no source to enter
+        Location location = scratchLocation.get();
+        location.setWorld(sample.world);
+        location.setX(x);
+        location.setY(y);
+        location.setZ(z);
+        
+        RadiationSource strongest = null;
+        int strongestLevel = 0;
+        List<RadiationSource> nearby = scratchSources.get();
+        try {
+            plugin.getSourceManager().collectSourcesAt(location, nearby);
+            for (int i = 0, size = nearby.size(); i < size; i++) {
+                RadiationSource source = nearby.get(i);
+                int sourceLevel = source.getRadiationLevelAt(location);
+                if (sourceLevel > strongestLevel) {
+                    strongest = source;
+                    strongestLevel = sourceLevel;
+                }
+            }
+        } finally {
+            nearby.clear();
+        }
+        
+        if (strongest == null) {
+            state.setZoneSearched(true);
+            return;
+        }
+        
+        // A cancelled enter is called again on the next check, so the block is not marked as searched
+        RadiationZoneEnterEvent event = new RadiationZoneEnterEvent(player, strongest, strongestLevel);
+        Bukkit.getPluginManager().callEvent(event);
+        if (event.isCancelled()) {
+            return;
+        }
+        
+        state.setZoneSearched(true);
+        state.setZone(strongest);
+        if (settings.getEnterSound().isEnabled()) {
+            settings.getEnterSound().play(player);
         }
     }
     
@@ -77,99 +500,128 @@ public class RadiationTask extends BukkitRunnable {
     }
     
     /**
-     * Decrease a player's radiation level when not in a radiation zone
+     * Apply damage to a player based on their radiation level
      * 
-     * @param player The player
+     * @param state The player's state
+     * @param settings The current settings
      */
-    private void decreaseRadiation(Player player) {
-        int currentLevel = plugin.getRadiationManager().getRadiationLevel(player);
+    private void applyRadiationDamage(PlayerRadiationState state, Settings settings) {
+        if (!settings.isDamageEnabled()) {
+            return;
+        }
+        
+        Player player = state.getPlayer();
+        int radiationLevel = plugin.getRadiationManager().getRadiationLevel(state);
         
-        if (currentLevel > 0) {
-            // Decrease by 1 point per check
-            plugin.getRadiationManager().removeRadiation(player, 1);
+        if (radiationLevel > 50) {
+            // Calculate damage based on radiation level
+            double damage = settings.getDamageBaseAmount() * (radiationLevel / 100.0);
+            
+            // Apply damage
+            player.damage(damage);
+            
+            // Play damage sound if enabled
+            if (settings.getDamageSound().isEnabled()) {
+                settings.getDamageSound().play(player);
+            }
         }
     }
     
     /**
-     * Apply damage to players based on their radiation level
+     * Show radiation particles around a player, in a single spawn sent only
+     * to the player and the players tracking them within the view distance.
+     * On region-threaded servers only players in the same region see them.
+     * 
+     * @param player The player
+     * @param settings The current settings
      */
-    private void applyRadiationDamage() {
-        if (!plugin.getConfigManager().getConfig().getBoolean("damage.enabled", true)) {
+    private void showRadiationParticles(Player player, Settings settings) {
+        Particle particle = settings.getParticleType();
+        if (particle == null) {
+            return;
+        }
+        
+        // Only show particles on a portion of the checks to achieve the desired frequency
+        if (ThreadLocalRandom.current().nextInt(20) >= settings.getParticleFrequency()) {
             return;
         }
         
-        double baseDamage = plugin.getConfigManager().getConfig().getDouble("damage.base-amount", 2.0);
+        Location location = player.getLocation(scratchLocation.get());
+        World world = location.getWorld();
+        double x = location.getX();
+        double y = location.getY() + 1.5;
+        double z = location.getZ();
+        int viewDistance = settings.getParticleViewDistance();
+        double maxDistanceSquared = (double) viewDistance * viewDistance;
         
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            int radiationLevel = plugin.getRadiationManager().getRadiationLevel(player);
-            
-            if (radiationLevel > 50) {
-                // Calculate damage based on radiation level
-                double damage = baseDamage * (radiationLevel / 100.0);
-                
-                // Apply damage
-                player.damage(damage);
+        boolean regionThreaded = scheduler.isRegionThreaded();
+        List<Player> viewers = scratchViewers.get();
+        try {
+            // Only the players tracking the player can be near enough, and the player sees their own particles
+            viewers.add(player);
+            for (Player viewer : player.getTrackedBy()) {
+                // On region-threaded servers, only the players owned by this thread can be read and sent to
+                if (regionThreaded && !Bukkit.isOwnedByCurrentRegion(viewer)) {
+                    continue;
+                }
                 
-                // Play damage sound if enabled
-                if (plugin.getConfigManager().getConfig().getBoolean("effects.sounds.damage.enabled", true)) {
-                    String soundName = plugin.getConfigManager().getConfig().getString("effects.sounds.damage.sound", "ENTITY_PLAYER_HURT");
-                    float volume = (float) plugin.getConfigManager().getConfig().getDouble("effects.sounds.damage.volume", 0.8);
-                    float pitch = (float) plugin.getConfigManager().getConfig().getDouble("effects.sounds.damage.pitch", 1.2);
-                    
-                    try {
-                        player.playSound(player.getLocation(), soundName, volume, pitch);
-                    } catch (Exception e) {
-                        plugin.getLogger().warning("Invalid sound: " + soundName);
-                    }
+                Location viewerLocation = viewer.getLocation(location);
+                double dx = viewerLocation.getX() - x;
+                double dy = viewerLocation.getY() - y;
+                double dz = viewerLocation.getZ() - z;
+                if (dx * dx + dy * dy + dz * dz <= maxDistanceSquared) {
+                    viewers.add(viewer);
                 }
             }
+            
+            // Spread the particles in a small box around the player's body. Without force the
+            // server drops receivers further than 32 blocks away.
+            world.spawnParticle(particle, viewers, player, x, y, z, PARTICLE_COUNT, 0.5, 0.25, 0.5, 0,
+                    settings.getParticleData(), viewDistance > FORCE_PARTICLE_DISTANCE);
+        } finally {
+            viewers.clear();
         }
     }
     
     /**
-     * Show radiation particles around a player
-     * 
-     * @param player The player
+     * The samples of one bucket and the players in it that are due for damage
      */
-    private void showRadiationParticles(Player player) {
-        try {
-            String particleType = plugin.getConfigManager().getConfig().getString("effects.particles.type", "REDSTONE");
-            int frequency = plugin.getConfigManager().getConfig().getInt("effects.particles.frequency", 10);
-            
-            // Only show a portion of particles each tick to achieve the desired frequency
-            if (Math.random() * 20 > frequency) {
-                return;
-            }
-            
-            Location location = player.getLocation().add(0, 1, 0);
-            
-            // Spawn particles in a small radius around the player
-            for (int i = 0; i < 3; i++) {
-                double offsetX = (Math.random() - 0.5) * 2;
-                double offsetY = Math.random();
-                double offsetZ = (Math.random() - 0.5) * 2;
-                
-                location.getWorld().spawnParticle(
-                    Particle.valueOf(particleType),
-                    location.getX() + offsetX,
-                    location.getY() + offsetY,
-                    location.getZ() + offsetZ,
-                    1, 0, 0, 0, 0
-                );
-            }
-        } catch (Exception e) {
-            // Silently fail if particle type is invalid
+    private static final class Batch {
+        private final List<Sample> samples;
+        private final List<PlayerRadiationState> damageDue;
+        private final Settings settings;
+        
+        private Batch(List<Sample> samples, List<PlayerRadiationState> damageDue, Settings settings) {
+            this.samples = samples;
+            this.damageDue = damageDue;
+            this.settings = settings;
         }
     }
     
     /**
-     * Check if radiation is enabled in a world
-     * 
-     * @param worldName The world name
-     * @return true if radiation is enabled in the world
+     * Position of a player captured for one check, and the result of evaluating it
      */
-    private boolean isWorldEnabled(String worldName) {
-        List<String> enabledWorlds = plugin.getConfigManager().getConfig().getStringList("sources.enabled-worlds");
-        return enabledWorlds.isEmpty() || enabledWorlds.contains(worldName);
+    private static final class Sample {
+        private final PlayerRadiationState state;
+        private final World world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final long sourceVersion;
+        private final double resistance;
+        
+        private int level = UNKNOWN;
+        private int gain;
+        private boolean evaluated;
+        
+        private Sample(PlayerRadiationState state, World world, int x, int y, int z, long sourceVersion, double resistance) {
+            this.state = state;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.sourceVersion = sourceVersion;
+            this.resistance = resistance;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,295 @@
+package com.ssquadteam.fallout.tasks;
+
+import com.ssquadteam.fallout.Fallout;
+import com.ssquadteam.fallout.config.Settings;
+import com.ssquadteam.fallout.managers.RadiationSourceManager;
+import com.ssquadteam.fallout.models.RadiationSource;
+import com.ssquadteam.fallout.models.ZoneShape;
+import com.ssquadteam.fallout.scheduler.TaskScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Draws the reach of radiation sources with particles: points on the
+ * sphere of point sources and on the outline of shaped zones.
+ * <p>
+ * Every tick a fixed budget of particles is split between the players, and
+ * each player's share between the sources within their view distance,
+ * found through the source index. Each source draws a different slice of
+ * its points every tick, so the whole outline appears over a few ticks
+ * while the number of particles sent per tick stays flat.
+ * <p>
+ * On single-threaded servers one task draws for all players; on
+ * region-threaded servers every player gets their own task on the thread
+ * that owns them.
+ */
+public class SourceVisualizer implements Runnable {
+
+    // Distance between the points of an outline, and the most points one outline is split into
+    private static final double POINT_SPACING = 1.5;
+    private static final int MAX_POINTS = 4096;
+    private static final int MIN_SPHERE_POINTS = 32;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    // Step through the points in this order so consecutive slices are spread over the outline
+    private static final int POINT_STRIDE = 7919;
+
+    private final Fallout plugin;
+    private final TaskScheduler scheduler;
+    private final Map<UUID, Outline> outlines = new ConcurrentHashMap<>();
+    private long ticks;
+    private final ThreadLocal<Location> scratchLocation = ThreadLocal.withInitial(() -> new Location(null, 0, 0, 0));
+    private final ThreadLocal<Set<RadiationSource>> scratchSources = ThreadLocal.withInitial(LinkedHashSet::new);
+
+    public SourceVisualizer(Fallout plugin) {
+        this.plugin = plugin;
+        this.scheduler = plugin.getTaskScheduler();
+    }
+
+    /**
+     * Start drawing sources
+     */
+    public void start() {
+        if (scheduler.isRegionThreaded()) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                startPlayer(player);
+            }
+        } else {
+            scheduler.runGlobalTimer(this, 1L, 1L);
+        }
+    }
+
+    /**
+     * Start drawing sources for a player that joined. Only needed on
+     * region-threaded servers; the task stops by itself when the player leaves.
+     *
+     * @param player The player
+     */
+    public void startPlayer(Player player) {
+        if (!scheduler.isRegionThreaded()) {
+            return;
+        }
+
+        // Count the player's own ticks, a lagging region must not skip parts of the rotation
+        AtomicLong ticks = new AtomicLong();
+        scheduler.runEntityTimer(player, () -> draw(player, Bukkit.getOnlinePlayers().size(), ticks.getAndIncrement()), 1L, 1L);
+    }
+
+    /**
+     * Draw the sources of every player, on single-threaded servers
+     */
+    @Override
+    public void run() {
+        Collection<? extends Player> players = Bukkit.getOnlinePlayers();
+        long tick = ticks++;
+        for (Player player : players) {
+            draw(player, players.size(), tick);
+        }
+    }
+
+    /**
+     * Draw a player's share of the budget of the sources within their view distance
+     *
+     * @param viewer The player
+     * @param viewerCount The number of players sharing the budget
+     * @param tick The number of times the viewer was drawn for, which drives the rotation
+     */
+    private void draw(Player viewer, int viewerCount, long tick) {
+        Settings settings = plugin.getConfigManager().getSettings();
+        if (!settings.isShowSourceParticles() || !settings.isWorldEnabled(viewer.getWorld().getName())) {
+            return;
+        }
+
+        // With more players than particles, every player gets one particle on some of the ticks
+        int budget = settings.getSourceParticleBudget() / Math.max(1, viewerCount);
+        if (budget == 0) {
+            int stride = (viewerCount + settings.getSourceParticleBudget() - 1) / settings.getSourceParticleBudget();
+            if (Math.floorMod(viewer.getUniqueId().hashCode() + tick, stride) != 0) {
+                return;
+            }
+            budget = 1;
+        }
+
+        RadiationSourceManager sourceManager = plugin.getSourceManager();
+        int viewDistance = settings.getSourceViewDistance();
+        Location location = viewer.getLocation(scratchLocation.get());
+        Set<RadiationSource> nearby = scratchSources.get();
+
+        try {
+            sourceManager.collectSourcesNear(location, viewDistance, nearby);
+            nearby.removeIf(source -> !source.isActive());
+            if (nearby.isEmpty()) {
+                return;
+            }
+
+            // With more sources than particles, a rotating window of sources gets one particle each
+            int sourceCount = nearby.size();
+            int perSource = Math.max(1, budget / sourceCount);
+            int drawnSources = Math.min(sourceCount, budget);
+            int firstSource = (int) Math.floorMod(tick * drawnSources, (long) sourceCount);
+
+            double viewX = location.getX();
+            double viewY = location.getY();
+            double viewZ = location.getZ();
+            double maxDistanceSquared = (double) viewDistance * viewDistance;
+
+            int index = 0;
+            for (RadiationSource source : nearby) {
+                if (Math.floorMod(index++ - firstSource, sourceCount) >= drawnSources) {
+                    continue;
+                }
+
+                double[] points = getOutline(source, sourceManager).points;
+                int pointCount = points.length / 3;
+                int start = (int) Math.floorMod(tick * perSource, (long) pointCount);
+
+                for (int k = 0; k < Math.min(perSource, pointCount); k++) {
+                    int offset = ((start + k) % pointCount) * 3;
+                    double dx = points[offset] - viewX;
+                    double dy = points[offset + 1] - viewY;
+                    double dz = points[offset + 2] - viewZ;
+
+                    // Points out of sight still use up their share, so the rotation stays even
+                    if (dx * dx + dy * dy + dz * dz <= maxDistanceSquared) {
+                        viewer.spawnParticle(settings.getSourceParticleType(),
+                                points[offset], points[offset + 1], points[offset + 2],
+                                1, 0, 0, 0, 0, settings.getSourceParticleData());
+                    }
+                }
+            }
+        } finally {
+            nearby.clear();
+        }
+    }
+
+    /**
+     * Get the cached outline of a source, building it again if the source changed
+     */
+    private Outline getOutline(RadiationSource source, RadiationSourceManager sourceManager) {
+        Outline outline = outlines.get(source.getId());
+        if (outline != null && outline.matches(source)) {
+            return outline;
+        }
+
+        // Forget the outlines of removed sources once in a while
+        if (outlines.size() > sourceManager.getAllSources().size() + 16) {
+            outlines.keySet().removeIf(id -> sourceManager.getSource(id) == null);
+        }
+
+        outline = new Outline(source);
+        outlines.put(source.getId(), outline);
+        return outline;
+    }
+
+    /**
+     * Points along the outline of a shape's edges, about POINT_SPACING apart
+     */
+    private static double[] shapePoints(ZoneShape shape) {
+        double[] edges = shape.getOutline();
+        double totalLength = 0;
+        for (int i = 0; i < edges.length; i += 6) {
+            totalLength += edgeLength(edges, i);
+        }
+        double spacing = Math.max(POINT_SPACING, totalLength / MAX_POINTS);
+
+        int count = 0;
+        for (int i = 0; i < edges.length; i += 6) {
+            count += Math.max(1, (int) Math.ceil(edgeLength(edges, i) / spacing));
+        }
+
+        double[] points = new double[count * 3];
+        int offset = 0;
+        for (int i = 0; i < edges.length; i += 6) {
+            int steps = Math.max(1, (int) Math.ceil(edgeLength(edges, i) / spacing));
+            for (int step = 0; step < steps; step++) {
+                double t = (double) step / steps;
+                points[offset++] = edges[i] + (edges[i + 3] - edges[i]) * t;
+                points[offset++] = edges[i + 1] + (edges[i + 4] - edges[i + 1]) * t;
+                points[offset++] = edges[i + 2] + (edges[i + 5] - edges[i + 2]) * t;
+            }
+        }
+        return spread(points);
+    }
+
+    private static double edgeLength(double[] edges, int offset) {
+        double dx = edges[offset + 3] - edges[offset];
+        double dy = edges[offset + 4] - edges[offset + 1];
+        double dz = edges[offset + 5] - edges[offset + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Points evenly spread over a sphere (a Fibonacci lattice), about
+     * POINT_SPACING apart
+     */
+    private static double[] spherePoints(double centerX, double centerY, double centerZ, double radius) {
+        double area = 4 * Math.PI * radius * radius;
+        int count = (int) Math.min(MAX_POINTS, Math.max(MIN_SPHERE_POINTS, area / (POINT_SPACING * POINT_SPACING)));
+
+        double[] points = new double[count * 3];
+        for (int i = 0; i < count; i++) {
+            double y = 1 - 2 * (i + 0.5) / count;
+            double ring = Math.sqrt(1 - y * y);
+            double angle = GOLDEN_ANGLE * i;
+            points[i * 3] = centerX + radius * ring * Math.cos(angle);
+            points[i * 3 + 1] = centerY + radius * y;
+            points[i * 3 + 2] = centerZ + radius * ring * Math.sin(angle);
+        }
+        return spread(points);
+    }
+
+    /**
+     * Reorder points so that any run of consecutive points is spread over
+     * the whole outline instead of covering one part of it
+     */
+    private static double[] spread(double[] points) {
+        int count = points.length / 3;
+        int stride = count % POINT_STRIDE == 0 ? 1 : POINT_STRIDE;
+
+        double[] spread = new double[points.length];
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) i * stride % count) * 3;
+            spread[i * 3] = points[from];
+            spread[i * 3 + 1] = points[from + 1];
+            spread[i * 3 + 2] = points[from + 2];
+        }
+        return spread;
+    }
+
+    /**
+     * The points of a source's outline, with the parameters they were built from
+     */
+    private static final class Outline {
+        private final double x;
+        private final double y;
+        private final double z;
+        private final int radius;
+        private final ZoneShape shape;
+        private final double[] points;
+
+        private Outline(RadiationSource source) {
+            Location location = source.getLocation();
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+            this.radius = source.getRadius();
+            this.shape = source.getShape();
+            this.points = shape != null ? shapePoints(shape) : spherePoints(x, y, z, radius);
+        }
+
+        private boolean matches(RadiationSource source) {
+            Location location = source.getLocation();
+            return location.getX() == x && location.getY() == y && location.getZ() == z
+                    && source.getRadius() == radius && source.getShape() == shape;
+        }
+    }
+}